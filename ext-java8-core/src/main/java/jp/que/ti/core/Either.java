@@ -0,0 +1,156 @@
+package jp.que.ti.core;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Represents a value of one of two possible types (a disjoint union): a left
+ * value (usually an error) or a right value.
+ *
+ * <p>
+ * Unlike {@link jp.que.ti.stream.Either}, this does not implement
+ * {@link Stream} and the right value is not lazy: it is a single final class
+ * holding one of two values. A stream view of the right value is available
+ * with {@link #toStream()}.
+ *
+ * @param <LEFT>
+ *            the type of the left value
+ * @param <RIGHT>
+ *            the type of the right value
+ */
+public final class Either<LEFT, RIGHT> {
+
+	/**
+	 * @throws NullPointerException
+	 *             if {@code value} is {@code null}
+	 */
+	public static <LEFT, RIGHT> Either<LEFT, RIGHT> left(LEFT value) {
+		return new Either<LEFT, RIGHT>(Objects.requireNonNull(value, "parameter value is null !! "), null);
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if {@code value} is {@code null}
+	 */
+	public static <LEFT, RIGHT> Either<LEFT, RIGHT> right(RIGHT value) {
+		return new Either<LEFT, RIGHT>(null, Objects.requireNonNull(value, "parameter value is null !! "));
+	}
+
+	/** どちらか一方だけが null でない */
+	private final LEFT left;
+	private final RIGHT right;
+
+	private Either(LEFT left, RIGHT right) {
+		this.left = left;
+		this.right = right;
+	}
+
+	public boolean isLeft() {
+		return left != null;
+	}
+
+	public boolean isRight() {
+		return right != null;
+	}
+
+	public RIGHT getOr(RIGHT defaultRight) {
+		return right != null ? right : defaultRight;
+	}
+
+	/**
+	 * @throws NoSuchElementException
+	 *             if this is a left
+	 */
+	public RIGHT getOrNoSuchElementException() {
+		if (right == null) {
+			throw new NoSuchElementException("No right object.");
+		}
+		return right;
+	}
+
+	public LEFT getLeftOr(LEFT defaultLeft) {
+		return left != null ? left : defaultLeft;
+	}
+
+	/**
+	 * @throws NoSuchElementException
+	 *             if this is a right
+	 */
+	public LEFT getLeftOrNoSuchElementException() {
+		if (left == null) {
+			throw new NoSuchElementException("No left object.");
+		}
+		return left;
+	}
+
+	public RIGHT orElseGet(Supplier<? extends RIGHT> other) {
+		return right != null ? right : other.get();
+	}
+
+	public <X extends Throwable> RIGHT orElseThrow(Supplier<? extends X> exceptionSupplier) throws X {
+		if (right == null) {
+			throw exceptionSupplier.get();
+		}
+		return right;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <R> Either<LEFT, R> map(Function<? super RIGHT, ? extends R> mapper) {
+		return right == null ? (Either<LEFT, R>) this : right(mapper.apply(right));
+	}
+
+	@SuppressWarnings("unchecked")
+	public <L> Either<L, RIGHT> mapLeft(Function<? super LEFT, ? extends L> mapper) {
+		return left == null ? (Either<L, RIGHT>) this : left(mapper.apply(left));
+	}
+
+	@SuppressWarnings("unchecked")
+	public <R> Either<LEFT, R> flatMap(Function<? super RIGHT, ? extends Either<LEFT, ? extends R>> mapper) {
+		return right == null ? (Either<LEFT, R>) this : Objects.requireNonNull((Either<LEFT, R>) mapper.apply(right));
+	}
+
+	/**
+	 * @return the result of {@code leftFn} or {@code rightFn}, whichever
+	 *         applies
+	 */
+	public <R> R fold(Function<? super LEFT, ? extends R> leftFn, Function<? super RIGHT, ? extends R> rightFn) {
+		return right != null ? rightFn.apply(right) : leftFn.apply(left);
+	}
+
+	/**
+	 * @return a stream of the right value, empty if this is a left
+	 */
+	public Stream<RIGHT> toStream() {
+		return right == null ? Stream.empty() : Stream.of(right);
+	}
+
+	/**
+	 * @return the right value, empty if this is a left
+	 */
+	public Option<RIGHT> toOption() {
+		return Option.of(right);
+	}
+
+	@Override
+	public int hashCode() {
+		return right != null ? right.hashCode() : 31 * left.hashCode() + 1;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Either))
+			return false;
+		final Either<?, ?> other = (Either<?, ?>) obj;
+		return Objects.equals(left, other.left) && Objects.equals(right, other.right);
+	}
+
+	@Override
+	public String toString() {
+		return right != null ? "Right[" + right + "]" : "Left[" + left + "]";
+	}
+}
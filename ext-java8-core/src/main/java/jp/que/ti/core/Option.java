@@ -0,0 +1,148 @@
+package jp.que.ti.core;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A container object which may or may not contain a non-null value.
+ *
+ * <p>
+ * Unlike {@link jp.que.ti.stream.Option}, this does not implement
+ * {@link Stream}: it is a single final class, so loading it does not load the
+ * stream pipeline classes and its call sites stay monomorphic. A stream view
+ * is available with {@link #toStream()}.
+ *
+ * @param <T>
+ *            the type of the value
+ */
+public final class Option<T> {
+
+	private static final Option<?> EMPTY = new Option<Object>(null);
+
+	@SuppressWarnings("unchecked")
+	public static <T> Option<T> empty() {
+		return (Option<T>) EMPTY;
+	}
+
+	/**
+	 * @return an {@code Option} of {@code value}, empty if it is
+	 *         {@code null}
+	 */
+	public static <T> Option<T> of(T value) {
+		return value == null ? empty() : new Option<T>(value);
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if {@code value} is {@code null}
+	 */
+	public static <T> Option<T> some(T value) {
+		return new Option<T>(Objects.requireNonNull(value));
+	}
+
+	/**
+	 * @return an {@code Option} of the value of {@code optional}
+	 */
+	public static <T> Option<T> ofOptional(Optional<T> optional) {
+		return of(optional.orElse(null));
+	}
+
+	/** 値(無ければ null) */
+	private final T value;
+
+	private Option(T value) {
+		this.value = value;
+	}
+
+	public boolean isPresent() {
+		return value != null;
+	}
+
+	public boolean isEmpty() {
+		return value == null;
+	}
+
+	/**
+	 * @throws NoSuchElementException
+	 *             if there is no value present
+	 */
+	public T getOrNoSuchElementException() {
+		if (value == null) {
+			throw new NoSuchElementException("No value present");
+		}
+		return value;
+	}
+
+	/**
+	 * @return the value if present, otherwise {@code other}
+	 */
+	public T or(T other) {
+		return value != null ? value : other;
+	}
+
+	public T orElseGet(Supplier<? extends T> other) {
+		return value != null ? value : other.get();
+	}
+
+	public <X extends Throwable> T orElseThrow(Supplier<? extends X> exceptionSupplier) throws X {
+		if (value == null) {
+			throw exceptionSupplier.get();
+		}
+		return value;
+	}
+
+	public void ifPresent(Consumer<? super T> consumer) {
+		if (value != null) {
+			consumer.accept(value);
+		}
+	}
+
+	public Option<T> filter(Predicate<? super T> predicate) {
+		return value == null || predicate.test(value) ? this : empty();
+	}
+
+	public <R> Option<R> map(Function<? super T, ? extends R> mapper) {
+		return value == null ? empty() : of(mapper.apply(value));
+	}
+
+	@SuppressWarnings("unchecked")
+	public <R> Option<R> flatMap(Function<? super T, ? extends Option<? extends R>> mapper) {
+		return value == null ? empty() : Objects.requireNonNull((Option<R>) mapper.apply(value));
+	}
+
+	/**
+	 * @return a stream of the value, empty if there is no value
+	 */
+	public Stream<T> toStream() {
+		return value == null ? Stream.empty() : Stream.of(value);
+	}
+
+	public Optional<T> toOptional() {
+		return Optional.ofNullable(value);
+	}
+
+	@Override
+	public int hashCode() {
+		return value == null ? 0 : value.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Option))
+			return false;
+		return Objects.equals(value, ((Option<?>) obj).value);
+	}
+
+	@Override
+	public String toString() {
+		return value == null ? "Empty" : "Some[" + value + "]";
+	}
+}
@@ -0,0 +1,28 @@
+package jp.que.ti.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class EitherTest {
+
+	@Test
+	public void test_either() {
+		Either<String, Integer> right = Either.right(1);
+		assertThat(right.isRight(), is(true));
+		assertThat(right.map(i -> i + 1).getOrNoSuchElementException(), is(2));
+		assertThat(right.flatMap(i -> Either.<String, Integer> left("err")).getLeftOr("x"), is("err"));
+		assertThat(right.fold(l -> -1, r -> r), is(1));
+		assertThat(right.toOption(), is(Option.of(1)));
+
+		Either<String, Integer> left = Either.left("err");
+		assertThat(left.map(i -> i + 1).getLeftOrNoSuchElementException(), is("err"));
+		assertThat(left.mapLeft(String::length).getLeftOrNoSuchElementException(), is(3));
+		assertThat(left.getOr(0), is(0));
+		assertThat(left.toStream().count(), is(0L));
+		assertThat(left.equals(Either.left("err")), is(true));
+		assertThat(left.equals(right), is(false));
+	}
+
+}
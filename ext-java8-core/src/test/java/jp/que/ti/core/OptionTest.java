@@ -0,0 +1,38 @@
+package jp.que.ti.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class OptionTest {
+
+	@Test
+	public void test_option() {
+		Option<String> some = Option.of("a");
+		assertThat(some.isPresent(), is(true));
+		assertThat(some.map(s -> s + "b").getOrNoSuchElementException(), is("ab"));
+		assertThat(some.filter(s -> s.isEmpty()).isEmpty(), is(true));
+		assertThat(some.flatMap(s -> Option.of(s.length())).or(0), is(1));
+		assertThat(some.toStream().collect(Collectors.toList()).size(), is(1));
+		assertThat(some, is(Option.some("a")));
+
+		Option<String> none = Option.of(null);
+		assertThat(none == Option.<String> empty(), is(true));
+		assertThat(none.map(s -> s + "b").isEmpty(), is(true));
+		assertThat(none.or("foo"), is("foo"));
+		assertThat(none.toStream().count(), is(0L));
+		try {
+			none.getOrNoSuchElementException();
+			assertTrue("NoSuchElementException例外発生するはず", false);
+		} catch (NoSuchElementException e) {
+			assertTrue("NoSuchElementException例外発生するはず", true);
+		}
+
+	}
+
+}
@@ -0,0 +1,19 @@
+package jp.que.ti.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class ParamTest {
+
+	@Test
+	public void test_tuple() {
+		assertThat(Param.t2("a", 1), is(Param.t2("a", 1)));
+		assertThat(Param.t2("a", 1).equals(Param.t2("a", 2)), is(false));
+		assertThat(Param.t2(null, 1).hashCode(), is(Param.t2(null, 1).hashCode()));
+		assertThat(Param.t3("a", 1, 2L)._3, is(2L));
+		assertThat(Param.t3("a", 1, 2L).toString(), is("Tuple3(_1: a, _2: 1, _3:2)"));
+	}
+
+}
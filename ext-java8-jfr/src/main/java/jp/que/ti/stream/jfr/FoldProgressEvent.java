@@ -0,0 +1,30 @@
+package jp.que.ti.stream.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The progress of a long {@code StreamUtils.foldLeft} run, emitted
+ * periodically while it runs.
+ */
+@Name("jp.que.ti.stream.FoldProgress")
+@Label("Fold Progress")
+@Category({ "ext-java8" })
+@Description("Elements folded so far by a running foldLeft")
+@StackTrace(false)
+class FoldProgressEvent extends jdk.jfr.Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Elements")
+	long elements;
+
+	@Label("Elapsed")
+	@Timespan(Timespan.NANOSECONDS)
+	long elapsed;
+}
@@ -0,0 +1,24 @@
+package jp.que.ti.stream.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A split of the source of a parallel fold into a new task.
+ */
+@Name("jp.que.ti.stream.FoldSplit")
+@Label("Fold Split")
+@Category({ "ext-java8" })
+@Description("Split of the source of a parallel fold")
+@StackTrace(false)
+class FoldSplitEvent extends jdk.jfr.Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Estimated Size")
+	long estimatedSize;
+}
@@ -0,0 +1,64 @@
+package jp.que.ti.stream.jfr;
+
+import jp.que.ti.stream.Instrumentation;
+
+/**
+ * An {@link Instrumentation.Tracer} which emits Java Flight Recorder events:
+ * {@code jp.que.ti.stream.Operation} for each {@code Right} supplier
+ * evaluation and {@code foldLeft} run (1 ms or longer by default),
+ * {@code jp.que.ti.stream.FoldProgress} periodically during a
+ * {@code foldLeft} run, and {@code jp.que.ti.stream.FoldSplit} for each split
+ * of a parallel fold.
+ *
+ * <p>
+ * It is loaded by {@link java.util.ServiceLoader} when this module is on the
+ * class path and {@code -Djp.que.ti.stream.instrumentation=true} is given. The
+ * events cost little unless a recording enables them.
+ */
+public final class JfrTracer implements Instrumentation.Tracer {
+
+	/** {@inheritDoc} */
+	@Override
+	public Object begin(String operation) {
+		final OperationEvent event = new OperationEvent();
+		event.operation = operation;
+		event.startNanos = System.nanoTime();
+		event.begin();
+		return event;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void progress(Object span, long elements) {
+		final FoldProgressEvent progress = new FoldProgressEvent();
+		if (progress.isEnabled()) {
+			final OperationEvent event = (OperationEvent) span;
+			progress.operation = event.operation;
+			progress.elements = elements;
+			progress.elapsed = event.elapsedNanos();
+			progress.commit();
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void end(Object span, long elements) {
+		final OperationEvent event = (OperationEvent) span;
+		event.end();
+		if (event.shouldCommit()) {
+			event.elements = elements;
+			event.commit();
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void split(String operation, long estimatedSize) {
+		final FoldSplitEvent event = new FoldSplitEvent();
+		if (event.isEnabled()) {
+			event.operation = operation;
+			event.estimatedSize = estimatedSize;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package jp.que.ti.stream.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * An expensive operation of ext-java8: the evaluation of an
+ * {@code Either.Right} supplier or a {@code StreamUtils.foldLeft} run.
+ */
+@Name("jp.que.ti.stream.Operation")
+@Label("Stream Operation")
+@Category({ "ext-java8" })
+@Description("Evaluation of a Right supplier or a foldLeft run")
+@StackTrace(true)
+@Threshold("1 ms")
+class OperationEvent extends jdk.jfr.Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Elements")
+	long elements;
+
+	/** FoldProgressEvent の経過時間用(transient なので記録しない) */
+	transient long startNanos;
+
+	long elapsedNanos() {
+		return System.nanoTime() - startNanos;
+	}
+}
@@ -0,0 +1,62 @@
+package jp.que.ti.stream.jfr;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import jp.que.ti.stream.Either;
+import jp.que.ti.stream.StreamUtils;
+
+public class JfrTracerTest {
+
+	@Test
+	public void test_events() throws Exception {
+		Path file = Files.createTempFile("ext-java8-jfr", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("jp.que.ti.stream.Operation").withThreshold(Duration.ZERO);
+			recording.enable("jp.que.ti.stream.FoldProgress");
+			recording.enable("jp.que.ti.stream.FoldSplit");
+			recording.start();
+
+			long sum = StreamUtils.foldLeft(LongStream.range(0, 200000).boxed(), 0L, (acc, i) -> acc + i);
+			assertThat(sum, is(199999L * 200000 / 2));
+
+			Either.Right.<String, Integer> lazy(() -> 1).getOrNoSuchElementException();
+
+			StreamUtils.countByKey(LongStream.range(0, 100000).boxed().parallel(), i -> i % 3);
+
+			recording.stop();
+			recording.dump(file);
+		}
+		try {
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			List<String> operations = events.stream()
+					.filter(e -> e.getEventType().getName().equals("jp.que.ti.stream.Operation"))
+					.map(e -> e.getString("operation")).collect(Collectors.toList());
+			assertThat(operations.contains("foldLeft"), is(true));
+			assertThat(operations.contains("either.right.supplier"), is(true));
+
+			long progress = events.stream()
+					.filter(e -> e.getEventType().getName().equals("jp.que.ti.stream.FoldProgress")).count();
+			assertThat(progress, is(200000L / 65536));
+
+			long splits = events.stream()
+					.filter(e -> e.getEventType().getName().equals("jp.que.ti.stream.FoldSplit")).count();
+			assertThat(splits > 0 || Runtime.getRuntime().availableProcessors() == 1, is(true));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+package jp.que.ti.stream;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executor of the blocking calls of
+ * {@link StreamUtils#mapAsyncBlocking}. This Java 8 version uses a shared
+ * cached pool of daemon threads. The multi-release JAR replaces it on Java 21
+ * or later with a version using virtual threads (src/main/java21).
+ */
+final class AsyncExecutors {
+	private AsyncExecutors() {
+	}
+
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+	private static final ExecutorService BLOCKING = Executors.newCachedThreadPool(r -> {
+		final Thread thread = new Thread(r, "ext-java8-blocking-" + THREAD_NUMBER.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	static Executor blocking() {
+		return BLOCKING;
+	}
+}
@@ -0,0 +1,98 @@
+package jp.que.ti.stream;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} over an {@link Iterator} of unknown size which splits
+ * by copying a batch of elements into an array. The batch starts small, so
+ * that CPU-heavy elements are spread over the threads early, and grows by
+ * the initial batch at each split up to {@code maxBatch}, so that there are
+ * fewer splits for long sources. The growth is arithmetic rather than
+ * geometric so that the last batches do not hold most of the work: with the
+ * defaults, no batch of a 20,000 element source has more than 5% of it.
+ *
+ * <p>
+ * Each array part is run by a single task. The size of the source is
+ * unknown ({@link #estimateSize()} is {@link Long#MAX_VALUE}), so the stream
+ * framework does not split the parts further.
+ *
+ * <p>
+ * This is how {@link Spliterators#spliteratorUnknownSize(Iterator, int)}
+ * splits too, but its batches grow by 1024 elements from 1024, so the first
+ * batches may be larger than the whole source of a short, expensive stream.
+ *
+ * @param <T>
+ *            the type of the elements
+ */
+final class BatchingSpliterator<T> implements Spliterator<T> {
+
+	/** 既定の最初と最大の分割の要素数 */
+	static final int INITIAL_BATCH = 16;
+	static final int MAX_BATCH = 1 << 20;
+
+	private final Iterator<? extends T> source;
+	private final int initialBatch;
+	private final int maxBatch;
+
+	/** 次に分割する際の要素数 */
+	private int batch;
+
+	BatchingSpliterator(Iterator<? extends T> source, int initialBatch, int maxBatch) {
+		if (initialBatch <= 0 || maxBatch < initialBatch) {
+			throw new IllegalArgumentException("batch sizes must be 0 < initialBatch <= maxBatch !! initialBatch="
+					+ initialBatch + ", maxBatch=" + maxBatch);
+		}
+		this.source = source;
+		this.batch = initialBatch;
+		this.initialBatch = initialBatch;
+		this.maxBatch = maxBatch;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		if (!source.hasNext()) {
+			return false;
+		}
+		action.accept(source.next());
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void forEachRemaining(Consumer<? super T> action) {
+		source.forEachRemaining(action);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<T> trySplit() {
+		if (!source.hasNext()) {
+			return null;
+		}
+		final Object[] array = new Object[batch];
+		int n = 0;
+		while (n < array.length && source.hasNext()) {
+			array[n++] = source.next();
+		}
+		batch = (int) Math.min((long) batch + initialBatch, maxBatch);
+		@SuppressWarnings("unchecked")
+		final Spliterator<T> prefix = (Spliterator<T>) Spliterators.spliterator(array, 0, n, ORDERED);
+		return prefix;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long estimateSize() {
+		return Long.MAX_VALUE;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int characteristics() {
+		return ORDERED;
+	}
+}
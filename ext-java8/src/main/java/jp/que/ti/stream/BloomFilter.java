@@ -0,0 +1,60 @@
+package jp.que.ti.stream;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Bloom filter sized for an expected number of elements and a
+ * false positive probability. Its memory does not grow with the number of
+ * elements added.
+ *
+ * <p>
+ * Elements are given as 64-bit hashes (see {@link Hashing}); the k bit
+ * indices are derived from two 64-bit values by double hashing, computed in
+ * {@code long} arithmetic so that all the bits are used however large the
+ * filter is.
+ */
+final class BloomFilter {
+
+	private final AtomicLongArray bits;
+	private final long bitSize;
+	private final int hashes;
+
+	BloomFilter(long expectedInsertions, double fpp) {
+		if (expectedInsertions <= 0) {
+			throw new IllegalArgumentException(
+					"parameter expectedInsertions must be positive !! expectedInsertions=" + expectedInsertions);
+		}
+		if (!(0 < fpp && fpp < 1)) {
+			throw new IllegalArgumentException("parameter fpp must be between 0 and 1 !! fpp=" + fpp);
+		}
+		final long m = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+		final long words = Math.max(1, (m + 63) >>> 6);
+		if (words > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("too many bits required !! bits=" + m);
+		}
+		this.bits = new AtomicLongArray((int) words);
+		this.bitSize = words << 6;
+		this.hashes = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+	}
+
+	/**
+	 * Adds the element of the 64-bit hash {@code hash} to this filter.
+	 *
+	 * @return {@code true} if the element was definitely not in this filter,
+	 *         {@code false} if it might have been
+	 */
+	boolean put(long hash) {
+		final long h1 = Hashing.mix64(hash);
+		final long h2 = Hashing.mix64(h1);
+		boolean changed = false;
+		for (int i = 1; i <= hashes; i++) {
+			final long index = ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+			final int word = (int) (index >>> 6);
+			final long mask = 1L << index;
+			if ((bits.get(word) & mask) == 0) {
+				changed |= (bits.getAndAccumulate(word, mask, (a, b) -> a | b) & mask) == 0;
+			}
+		}
+		return changed;
+	}
+}
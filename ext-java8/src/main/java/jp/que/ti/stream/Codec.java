@@ -0,0 +1,189 @@
+package jp.que.ti.stream;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import jp.que.ti.stream.Param.Tuple;
+import jp.que.ti.stream.Param.Tuple3;
+import jp.que.ti.stream.Param.Tuple4;
+import jp.que.ti.stream.Param.Tuple5;
+
+/**
+ * A compact binary encoding of values, written with {@link DataOutput} and read
+ * back with {@link DataInput}. Unlike Java serialization, no class descriptor
+ * is written: a {@link Tuple} is stored as the concatenation of its fields.
+ *
+ * <p>
+ * The codecs returned by the factory methods do not accept {@code null}; wrap
+ * them with {@link #nullable(Codec)} when needed.
+ *
+ * @param <T>
+ *            the type of the values
+ */
+public interface Codec<T> {
+
+	void write(T value, DataOutput out) throws IOException;
+
+	T read(DataInput in) throws IOException;
+
+	/** A codec of {@link String} (modified UTF-8, up to 65535 bytes). */
+	static Codec<String> string() {
+		return new Codec<String>() {
+			@Override
+			public void write(String value, DataOutput out) throws IOException {
+				out.writeUTF(value);
+			}
+
+			@Override
+			public String read(DataInput in) throws IOException {
+				return in.readUTF();
+			}
+		};
+	}
+
+	/** A codec of {@link Integer} (4 bytes). */
+	static Codec<Integer> integer() {
+		return new Codec<Integer>() {
+			@Override
+			public void write(Integer value, DataOutput out) throws IOException {
+				out.writeInt(value);
+			}
+
+			@Override
+			public Integer read(DataInput in) throws IOException {
+				return in.readInt();
+			}
+		};
+	}
+
+	/** A codec of {@link Long} (8 bytes). */
+	static Codec<Long> longValue() {
+		return new Codec<Long>() {
+			@Override
+			public void write(Long value, DataOutput out) throws IOException {
+				out.writeLong(value);
+			}
+
+			@Override
+			public Long read(DataInput in) throws IOException {
+				return in.readLong();
+			}
+		};
+	}
+
+	/** A codec of {@link Double} (8 bytes). */
+	static Codec<Double> doubleValue() {
+		return new Codec<Double>() {
+			@Override
+			public void write(Double value, DataOutput out) throws IOException {
+				out.writeDouble(value);
+			}
+
+			@Override
+			public Double read(DataInput in) throws IOException {
+				return in.readDouble();
+			}
+		};
+	}
+
+	/** Wraps {@code codec} with a one byte presence flag to accept {@code null}. */
+	static <T> Codec<T> nullable(Codec<T> codec) {
+		return new Codec<T>() {
+			@Override
+			public void write(T value, DataOutput out) throws IOException {
+				out.writeBoolean(value != null);
+				if (value != null) {
+					codec.write(value, out);
+				}
+			}
+
+			@Override
+			public T read(DataInput in) throws IOException {
+				return in.readBoolean() ? codec.read(in) : null;
+			}
+		};
+	}
+
+	/** A codec of {@link Tuple} made of the codecs of its fields. */
+	static <A, B> Codec<Tuple<A, B>> tuple(Codec<A> codecA, Codec<B> codecB) {
+		return new Codec<Tuple<A, B>>() {
+			@Override
+			public void write(Tuple<A, B> value, DataOutput out) throws IOException {
+				codecA.write(value._1, out);
+				codecB.write(value._2, out);
+			}
+
+			@Override
+			public Tuple<A, B> read(DataInput in) throws IOException {
+				final A a = codecA.read(in);
+				return Param.t2(a, codecB.read(in));
+			}
+		};
+	}
+
+	/** A codec of {@link Tuple3} made of the codecs of its fields. */
+	static <A, B, C> Codec<Tuple3<A, B, C>> tuple3(Codec<A> codecA, Codec<B> codecB, Codec<C> codecC) {
+		return new Codec<Tuple3<A, B, C>>() {
+			@Override
+			public void write(Tuple3<A, B, C> value, DataOutput out) throws IOException {
+				codecA.write(value._1, out);
+				codecB.write(value._2, out);
+				codecC.write(value._3, out);
+			}
+
+			@Override
+			public Tuple3<A, B, C> read(DataInput in) throws IOException {
+				final A a = codecA.read(in);
+				final B b = codecB.read(in);
+				return Param.t3(a, b, codecC.read(in));
+			}
+		};
+	}
+
+	/** A codec of {@link Tuple4} made of the codecs of its fields. */
+	static <A, B, C, D> Codec<Tuple4<A, B, C, D>> tuple4(Codec<A> codecA, Codec<B> codecB, Codec<C> codecC,
+			Codec<D> codecD) {
+		return new Codec<Tuple4<A, B, C, D>>() {
+			@Override
+			public void write(Tuple4<A, B, C, D> value, DataOutput out) throws IOException {
+				codecA.write(value._1, out);
+				codecB.write(value._2, out);
+				codecC.write(value._3, out);
+				codecD.write(value._4, out);
+			}
+
+			@Override
+			public Tuple4<A, B, C, D> read(DataInput in) throws IOException {
+				final A a = codecA.read(in);
+				final B b = codecB.read(in);
+				final C c = codecC.read(in);
+				return Param.t4(a, b, c, codecD.read(in));
+			}
+		};
+	}
+
+	/** A codec of {@link Tuple5} made of the codecs of its fields. */
+	static <A, B, C, D, E> Codec<Tuple5<A, B, C, D, E>> tuple5(Codec<A> codecA, Codec<B> codecB, Codec<C> codecC,
+			Codec<D> codecD, Codec<E> codecE) {
+		return new Codec<Tuple5<A, B, C, D, E>>() {
+			@Override
+			public void write(Tuple5<A, B, C, D, E> value, DataOutput out) throws IOException {
+				codecA.write(value._1, out);
+				codecB.write(value._2, out);
+				codecC.write(value._3, out);
+				codecD.write(value._4, out);
+				codecE.write(value._5, out);
+			}
+
+			@Override
+			public Tuple5<A, B, C, D, E> read(DataInput in) throws IOException {
+				final A a = codecA.read(in);
+				final B b = codecB.read(in);
+				final C c = codecC.read(in);
+				final D d = codecD.read(in);
+				return Param.t5(a, b, c, d, codecE.read(in));
+			}
+		};
+	}
+}
@@ -0,0 +1,116 @@
+package jp.que.ti.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * {@link Collector}s which work in bounded memory however large the input is.
+ */
+public class CollectorUtils {
+	private CollectorUtils() {
+	}
+
+	/**
+	 * Returns a {@link Collector} of the {@code k} greatest elements according
+	 * to {@code comparator}, greatest first. Only {@code k} elements are kept
+	 * in a bounded heap, and the heaps of parallel tasks are merged.
+	 *
+	 * @param k
+	 *            the number of elements to keep
+	 * @param comparator
+	 *            the order of the elements
+	 * @return the collector
+	 */
+	public static <T> Collector<T, ?, List<T>> topK(int k, Comparator<? super T> comparator) {
+		if (k <= 0) {
+			throw new IllegalArgumentException("parameter k must be positive !! k=" + k);
+		}
+		return Collector.<T, PriorityQueue<T>, List<T>> of( //
+				() -> new PriorityQueue<T>(Math.min(k, 1024), comparator) //
+				, (heap, t) -> offer(heap, t, k, comparator) //
+				, (left, right) -> {
+					if (left.size() < right.size()) {
+						final PriorityQueue<T> tmp = left;
+						left = right;
+						right = tmp;
+					}
+					for (T t : right) {
+						offer(left, t, k, comparator);
+					}
+					return left;
+				} //
+				, heap -> {
+					final List<T> list = new ArrayList<T>(heap);
+					Collections.sort(list, Collections.reverseOrder(comparator));
+					return list;
+				});
+	}
+
+	/** heap(最小値が先頭)に t を加えて k 要素に保つ */
+	private static <T> void offer(PriorityQueue<T> heap, T t, int k, Comparator<? super T> comparator) {
+		if (heap.size() < k) {
+			heap.add(t);
+		} else if (comparator.compare(t, heap.peek()) > 0) {
+			heap.poll();
+			heap.add(t);
+		}
+	}
+
+	/**
+	 * Returns a {@link Collector} estimating the number of distinct elements
+	 * with a HyperLogLog sketch of {@code 2^precision} bytes. The relative
+	 * standard error is about {@code 1.04 / sqrt(2^precision)} (1.6% for the
+	 * precision 12).
+	 *
+	 * <p>
+	 * The elements are hashed from {@link Object#hashCode()}, so elements with
+	 * the same hash code are counted once, and as there are only 2^32 hash
+	 * codes, the estimate falls short for more than about 10^8 distinct
+	 * elements (by 1% at 8.6 * 10^7). Use
+	 * {@link #approxCountDistinct(int, ToLongFunction)} with a 64-bit hash for
+	 * larger counts.
+	 *
+	 * @param precision
+	 *            between 4 and 18
+	 * @return the collector
+	 */
+	public static <T> Collector<T, ?, Long> approxCountDistinct(int precision) {
+		return approxCountDistinct(precision, Hashing::hash64);
+	}
+
+	/**
+	 * Same as {@link #approxCountDistinct(int)} with the elements hashed by
+	 * {@code hasher}. Elements with the same hash are counted once, so the
+	 * hash should use all the 64 bits.
+	 *
+	 * @param precision
+	 *            between 4 and 18
+	 * @param hasher
+	 *            the 64-bit hash of an element
+	 * @return the collector
+	 */
+	public static <T> Collector<T, ?, Long> approxCountDistinct(int precision, ToLongFunction<? super T> hasher) {
+		HyperLogLog.checkPrecision(precision);
+		return Collector.<T, HyperLogLog, Long> of( //
+				() -> new HyperLogLog(precision) //
+				, (hll, t) -> hll.add(hasher.applyAsLong(t)) //
+				, HyperLogLog::merge //
+				, HyperLogLog::estimate //
+				, Collector.Characteristics.UNORDERED);
+	}
+
+	/**
+	 * Returns {@link #approxCountDistinct(int)} with the precision 12 (4 KB).
+	 *
+	 * @return the collector
+	 */
+	public static <T> Collector<T, ?, Long> approxCountDistinct() {
+		return approxCountDistinct(12);
+	}
+
+}
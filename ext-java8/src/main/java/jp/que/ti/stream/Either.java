@@ -6,6 +6,7 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
+import java.util.concurrent.Callable;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
@@ -52,6 +53,9 @@ public abstract class Either<LEFT, RIGHT> implements Stream<RIGHT> {
 			if (value == null) {
 				throw new NullPointerException("parameter value is null !! ");
 			}
+			if (Instrumentation.ENABLED) {
+				Instrumentation.DEFAULT.countLeft();
+			}
 			return new Left<>(value);
 		}
 
@@ -154,16 +158,41 @@ public abstract class Either<LEFT, RIGHT> implements Stream<RIGHT> {
 			if (value == null) {
 				throw new NullPointerException("parameter value is null !! ");
 			}
-			return new Right<>(() -> value);
+			if (Instrumentation.ENABLED) {
+				Instrumentation.DEFAULT.countRight();
+			}
+			return new Right<>(value, null);
+		}
+
+		/**
+		 * Constructs a {@link Right} whose value is computed by
+		 * {@code supplier} when it is first needed, and then kept.
+		 *
+		 * @param supplier
+		 *            computes the value, which must not be null
+		 * @return {@link Right}
+		 */
+		public static <LEFT, RIGHT> Right<LEFT, RIGHT> lazy(Supplier<? extends RIGHT> supplier) {
+			Objects.requireNonNull(supplier, "parameter supplier is null !! ");
+			if (Instrumentation.ENABLED) {
+				Instrumentation.DEFAULT.countRight();
+			}
+			return new Right<>(null, supplier);
 		}
 
-		final Supplier<RIGHT> rightSupplier;
+		/** 値(lazy で作ったときは null) */
+		final RIGHT value;
 
-		private RIGHT rightcache = null;
+		/** lazy で作ったときだけ使う */
+		final Supplier<? extends RIGHT> rightSupplier;
 
-		/** コンストラクタ */
-		private Right(Supplier<RIGHT> rightSupplier) {
-			this.rightSupplier = Objects.requireNonNull(rightSupplier);
+		/** RightCache 経由で読み書きする(Java 17 以降は VarHandle) */
+		RIGHT rightcache = null;
+
+		/** コンストラクタ。value か rightSupplier のどちらかを渡す */
+		private Right(RIGHT value, Supplier<? extends RIGHT> rightSupplier) {
+			this.value = value;
+			this.rightSupplier = rightSupplier;
 		}
 
 		@Override
@@ -175,10 +204,10 @@ public abstract class Either<LEFT, RIGHT> implements Stream<RIGHT> {
 			if (getClass() != other.getClass())
 				return false;
 
-			final RIGHT rThis = getRightSupplier().get();
+			final RIGHT rThis = right();
 
 			@SuppressWarnings("unchecked")
-			final RIGHT rOther = ((Right<?, RIGHT>) other).getRightSupplier().get();
+			final RIGHT rOther = ((Right<?, RIGHT>) other).right();
 			return rThis.equals(rOther);
 		}
 
@@ -198,7 +227,7 @@ public abstract class Either<LEFT, RIGHT> implements Stream<RIGHT> {
 
 		@Override
 		public RIGHT getOr(RIGHT defaultRight) {
-			return getRightSupplier().get();
+			return right();
 		}
 
 		/**
@@ -207,22 +236,46 @@ public abstract class Either<LEFT, RIGHT> implements Stream<RIGHT> {
 		 * @return right value
 		 */
 		public RIGHT getOrNoSuchElementException() {
-			return getRightSupplier().get();
+			return right();
 		}
 
-		/** rightSupplier のキャッシュ(rightSupplierの計算結果を格納しておく) */
-		private Supplier<RIGHT> getRightSupplier() {
-			if (rightcache == null) {
-				rightcache = rightSupplier.get();
+		/** value、または rightSupplier の計算結果(初回に計算して rightcache に格納しておく) */
+		@SuppressWarnings("unchecked")
+		private RIGHT right() {
+			if (value != null) {
+				return value;
+			}
+			final Object cached = RightCache.get(this);
+			if (cached != null) {
+				return (RIGHT) cached;
+			}
+			final RIGHT r;
+			if (Instrumentation.ENABLED) {
+				final Instrumentation.Tracer tracer = Instrumentation.TRACER;
+				final Object span = tracer != null ? tracer.begin(Instrumentation.RIGHT_SUPPLIER) : null;
+				final long start = System.nanoTime();
+				try {
+					r = rightSupplier.get();
+				} finally {
+					Instrumentation.DEFAULT.timeSupplier(System.nanoTime() - start);
+					if (tracer != null) {
+						tracer.end(span, 1);
+					}
+				}
+			} else {
+				r = rightSupplier.get();
 			}
-			return () -> rightcache;
+			if (r == null) {
+				throw new NullPointerException("the supplier of the Right returned null !! ");
+			}
+			return (RIGHT) RightCache.publish(this, r);
 		}
 
 		@Override
 		public int hashCode() {
 			final int prime = 31;
 			int result = 1;
-			final RIGHT r = getRightSupplier().get();
+			final RIGHT r = right();
 			result = prime * result + ((r == null) ? 0 : r.hashCode());
 			return result;
 		}
@@ -236,19 +289,19 @@ public abstract class Either<LEFT, RIGHT> implements Stream<RIGHT> {
 		/** {@inheritDoc} */
 		@Override
 		public RIGHT orElseGet(Supplier<? extends RIGHT> other) {
-			return getRightSupplier().get();
+			return right();
 		}
 
 		/** {@inheritDoc} */
 		@Override
 		public <X extends Throwable> RIGHT orElseThrow(Supplier<? extends X> exceptionSupplier) throws X {
-			return getRightSupplier().get();
+			return right();
 		}
 
 		/** {@inheritDoc} */
 		@Override
 		public String toString() {
-			final RIGHT right = getRightSupplier().get();
+			final RIGHT right = right();
 			return "Right[" + right + "]";
 		}
 	}
@@ -273,6 +326,54 @@ public abstract class Either<LEFT, RIGHT> implements Stream<RIGHT> {
 		return Right.of(value);
 	}
 
+	/**
+	 * Converts the slim {@link jp.que.ti.core.Either} of the core artifact.
+	 */
+	public static <LEFT, RIGHT> Either<LEFT, RIGHT> fromCore(jp.que.ti.core.Either<LEFT, RIGHT> either) {
+		return either.isLeft() ? left(either.getLeftOrNoSuchElementException())
+				: right(either.getOrNoSuchElementException());
+	}
+
+	/**
+	 * Converts to the slim {@link jp.que.ti.core.Either} of the core artifact,
+	 * which does not implement {@link Stream}. A {@code Right} is evaluated.
+	 */
+	public jp.que.ti.core.Either<LEFT, RIGHT> toCore() {
+		return isLeft() ? jp.que.ti.core.Either.left(getLeftOrNoSuchElementException())
+				: jp.que.ti.core.Either.right(getOrNoSuchElementException());
+	}
+
+	/**
+	 * Calls {@code callable} and returns its result as a {@link Right}, or the
+	 * exception it throws as a {@link Left}. Nothing is allocated besides the
+	 * {@code Right}. A {@code null} result is reported as a
+	 * {@link NullPointerException}. {@link Error}s are not caught.
+	 *
+	 * <pre>
+	 * Either&lt;Exception, Integer&gt; port = Either.catching(() -&gt; Integer.parseInt(text))
+	 * 		.recover(NumberFormatException.class, e -&gt; 8080);
+	 * </pre>
+	 *
+	 * When failures are frequent, throw a subclass of
+	 * {@link StacklessException}, which does not fill in its stack trace.
+	 *
+	 * @param callable
+	 *            the code to call
+	 * @return {@link Right} of the result or {@link Left} of the exception
+	 */
+	public static <RIGHT> Either<Exception, RIGHT> catching(Callable<? extends RIGHT> callable) {
+		final RIGHT value;
+		try {
+			value = callable.call();
+		} catch (Exception e) {
+			return Left.of(e);
+		}
+		if (value == null) {
+			return Left.of(new NullPointerException("the result of the callable is null !! "));
+		}
+		return Right.of(value);
+	}
+
 	private Either() {
 	}
 
@@ -347,22 +448,34 @@ public abstract class Either<LEFT, RIGHT> implements Stream<RIGHT> {
 	}
 
 	public <R> Either<LEFT, R> flatMapEither(Function<? super RIGHT, ? extends Either<LEFT, ? extends R>> mapper) {
+		return flatMapEither(mapper, Instrumentation.ENABLED ? Instrumentation.DEFAULT : null);
+	}
+
+	/** probe が null でなければ mapper の時間をその Probe にだけ記録する */
+	<R> Either<LEFT, R> flatMapEither(Function<? super RIGHT, ? extends Either<LEFT, ? extends R>> mapper //
+			, Instrumentation.Probe probe) {
 		if (isLeft()) {
 			@SuppressWarnings("unchecked")
 			final Left<LEFT, R> lf = (Left<LEFT, R>) this;
 			return lf;
 		} else {
 
-			final Either<LEFT, ? extends R> rg = mapper.apply(this.getOrNoSuchElementException());
+			final Either<LEFT, ? extends R> rg;
+			if (probe != null) {
+				final long start = System.nanoTime();
+				rg = mapper.apply(this.getOrNoSuchElementException());
+				probe.timeFlatMap(System.nanoTime() - start);
+			} else {
+				rg = mapper.apply(this.getOrNoSuchElementException());
+			}
 			if (rg.isLeft()) {
 				@SuppressWarnings("unchecked")
 				final Left<LEFT, R> lf = (Left<LEFT, R>) rg;
 				return lf;
 			} else {
 				@SuppressWarnings("unchecked")
-				final Supplier<? extends R> sp2 = ((Right<?, R>) rg).getRightSupplier();
-				final Supplier<R> spRtn = () -> sp2.get();
-				return new Right<LEFT, R>(spRtn);
+				final R r = ((Right<?, R>) rg).right();
+				return new Right<LEFT, R>(r, null);
 			}
 		}
 	}
@@ -521,6 +634,78 @@ public abstract class Either<LEFT, RIGHT> implements Stream<RIGHT> {
 		return leftOr(mapper);
 	}
 
+	/**
+	 * Maps the left value. A {@link Right} is returned as is.
+	 *
+	 * @param mapper
+	 *            maps the left value
+	 * @return {@link Left} of the mapped value, or this {@link Right}
+	 */
+	public <L> Either<L, RIGHT> mapLeft(Function<? super LEFT, ? extends L> mapper) {
+		if (isLeft()) {
+			return Left.of(mapper.apply(getLeftOrNoSuchElementException()));
+		}
+		// Right は LEFT の値を持たないのでそのまま使える
+		@SuppressWarnings("unchecked")
+		final Right<L, RIGHT> rg = (Right<L, RIGHT>) this;
+		return rg;
+	}
+
+	/**
+	 * Turns a {@link Left} into a {@link Right} of {@code recovery}'s result.
+	 * A {@code Right} is returned as is.
+	 *
+	 * @param recovery
+	 *            maps the left value to a right value
+	 * @return this {@code Right}, or the recovered {@code Right}
+	 */
+	public Either<LEFT, RIGHT> recover(Function<? super LEFT, ? extends RIGHT> recovery) {
+		if (isLeft()) {
+			return Right.of(recovery.apply(getLeftOrNoSuchElementException()));
+		}
+		return this;
+	}
+
+	/**
+	 * Same as {@link #recover(Function)} but only a left value of
+	 * {@code leftType}, typically an exception type, is recovered; other
+	 * {@link Left}s are returned as is.
+	 *
+	 * @param leftType
+	 *            the type of the left values to recover
+	 * @param recovery
+	 *            maps the left value to a right value
+	 * @return this, or the recovered {@code Right}
+	 */
+	public <X extends LEFT> Either<LEFT, RIGHT> recover(Class<X> leftType, Function<? super X, ? extends RIGHT> recovery) {
+		if (isLeft()) {
+			final LEFT left = getLeftOrNoSuchElementException();
+			if (leftType.isInstance(left)) {
+				return Right.of(recovery.apply(leftType.cast(left)));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Replaces a {@link Left} with the {@code Either} returned by
+	 * {@code recovery}, for example another attempt. A {@link Right} is
+	 * returned as is.
+	 *
+	 * @param recovery
+	 *            maps the left value to an {@code Either}
+	 * @return this {@code Right}, or the result of {@code recovery}
+	 */
+	public Either<LEFT, RIGHT> recoverWith(Function<? super LEFT, ? extends Either<LEFT, ? extends RIGHT>> recovery) {
+		if (isLeft()) {
+			@SuppressWarnings("unchecked")
+			final Either<LEFT, RIGHT> recovered = (Either<LEFT, RIGHT>) recovery
+					.apply(getLeftOrNoSuchElementException());
+			return recovered;
+		}
+		return this;
+	}
+
 	/** {@inheritDoc} **/
 	@Override
 	public DoubleStream mapToDouble(ToDoubleFunction<? super RIGHT> mapper) {
@@ -0,0 +1,169 @@
+package jp.que.ti.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Running totals of {@link Either} results produced by several threads: the
+ * numbers of Rights and Lefts, the Right values reduced with a
+ * {@link BinaryOperator}, and the first Lefts. No lock is taken: the counts
+ * are {@link LongAdder}s, the sample slots are claimed with an atomic index,
+ * and, in the same way as a {@code LongAdder}, the Rights are reduced by
+ * compare-and-set into several cells chosen by a hash of the thread, which
+ * {@link #reduced()} combines. Threads therefore rarely update the same
+ * cell.
+ *
+ * <pre>
+ * EitherAggregator&lt;Throwable, Long&gt; totals = EitherAggregator.of(Long::sum, 10);
+ * workers.forEach(w -&gt; w.onResult(totals));
+ * ...
+ * totals.reduced(); // Option of the sum of the Rights
+ * </pre>
+ *
+ * The reducer may be called more than once for a value when threads race,
+ * so it must be free of side effects, and the Rights are reduced in no
+ * particular order, so it must be associative and commutative.
+ *
+ * @param <L>
+ *            the type of the Lefts
+ * @param <R>
+ *            the type of the Rights
+ */
+public final class EitherAggregator<L, R> implements Consumer<Either<L, R>> {
+
+	/**
+	 * @param reducer
+	 *            reduces the Right values
+	 * @param maxLeftSamples
+	 *            the number of Lefts to keep
+	 * @return the empty aggregator
+	 */
+	public static <L, R> EitherAggregator<L, R> of(BinaryOperator<R> reducer, int maxLeftSamples) {
+		if (maxLeftSamples < 0) {
+			throw new IllegalArgumentException(
+					"parameter maxLeftSamples must not be negative !! maxLeftSamples=" + maxLeftSamples);
+		}
+		return new EitherAggregator<L, R>(reducer, maxLeftSamples);
+	}
+
+	/** まだ Right が無いことを表す(Right の値が null のこともあるので) */
+	private static final Object NONE = new Object();
+
+	/** 縮約値のセルの数(2 のべき)。CPU 数以上にして、スレッドごとに別のセルを更新する */
+	private static final int STRIPES = stripes();
+
+	/** セルの間隔(要素数)。隣のセルと同じキャッシュラインに載らないようにする */
+	private static final int PADDING = 16;
+
+	private static int stripes() {
+		final int cpus = Runtime.getRuntime().availableProcessors();
+		int n = 1;
+		while (n < cpus && n < 256) {
+			n <<= 1;
+		}
+		return n;
+	}
+
+	private final BinaryOperator<R> reducer;
+	private final LongAdder rights = new LongAdder();
+	private final LongAdder lefts = new LongAdder();
+
+	/** 縮約値のセル。i 番目のセルは添字 i * PADDING */
+	private final AtomicReferenceArray<Object> cells = new AtomicReferenceArray<Object>(STRIPES * PADDING);
+	private final AtomicReferenceArray<L> samples;
+
+	/** 次に使う samples の添字。samples.length を超えたら増やさない */
+	private final AtomicInteger sampleIndex = new AtomicInteger();
+
+	private EitherAggregator(BinaryOperator<R> reducer, int maxLeftSamples) {
+		this.reducer = reducer;
+		this.samples = new AtomicReferenceArray<L>(maxLeftSamples);
+		for (int i = 0; i < STRIPES; i++) {
+			cells.set(i * PADDING, NONE);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void accept(Either<L, R> either) {
+		if (either.isLeft()) {
+			lefts.increment();
+			// 満杯になった後は読むだけで、共有のカウンタに書かない
+			if (sampleIndex.get() < samples.length()) {
+				final int i = sampleIndex.getAndIncrement();
+				if (i < samples.length()) {
+					samples.set(i, either.getLeftOrNoSuchElementException());
+				}
+			}
+			return;
+		}
+		rights.increment();
+		final R value = either.getOrNoSuchElementException();
+		int stripe = (int) Hashing.mix64(Thread.currentThread().getId()) & (STRIPES - 1);
+		while (true) {
+			final int index = stripe * PADDING;
+			final Object current = cells.get(index);
+			final Object next = current == NONE ? value : reducer.apply(cast(current), value);
+			if (cells.compareAndSet(index, current, next)) {
+				return;
+			}
+			// 競合したら隣のセルで試す
+			stripe = (stripe + 1) & (STRIPES - 1);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private R cast(Object value) {
+		return (R) value;
+	}
+
+	/** @return the number of Rights */
+	public long rightCount() {
+		return rights.sum();
+	}
+
+	/** @return the number of Lefts */
+	public long leftCount() {
+		return lefts.sum();
+	}
+
+	/** @return the Right values reduced, empty if there has been no Right */
+	public Option<R> reduced() {
+		Object result = NONE;
+		for (int i = 0; i < STRIPES; i++) {
+			final Object value = cells.get(i * PADDING);
+			if (value != NONE) {
+				result = result == NONE ? value : reducer.apply(cast(result), cast(value));
+			}
+		}
+		return result == NONE ? Option.<R> empty() : Option.of(cast(result));
+	}
+
+	/**
+	 * @return the first Lefts, at most {@code maxLeftSamples}; a Left being
+	 *         recorded by another thread at the same time may be missing
+	 */
+	public List<L> leftSamples() {
+		final int n = Math.min(sampleIndex.get(), samples.length());
+		final List<L> list = new ArrayList<L>(n);
+		for (int i = 0; i < n; i++) {
+			final L left = samples.get(i);
+			if (left != null) {
+				list.add(left);
+			}
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	@Override
+	public String toString() {
+		return "EitherAggregator(right: " + rightCount() + ", left: " + leftCount() + ", reduced: " + reduced()
+				+ ", leftSamples: " + leftSamples() + ")";
+	}
+}
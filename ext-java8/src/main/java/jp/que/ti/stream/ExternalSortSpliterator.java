@@ -0,0 +1,311 @@
+package jp.que.ti.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} which sorts its source with at most
+ * {@code maxInMemory} elements on the heap.
+ *
+ * <p>
+ * On the first traversal the source is read in runs of {@code maxInMemory}
+ * elements. Each run is sorted and, except the last one, spilled to a
+ * temporary file with a {@link Codec}. The sorted elements are then produced
+ * lazily by a k-way merge of the runs. At most {@code fanIn} files are open
+ * at once: while there are more runs, groups of {@code fanIn} consecutive
+ * runs are first merged into one file each. The merge is stable.
+ *
+ * <p>
+ * A temporary file is deleted as soon as it is exhausted, or by
+ * {@link #close()}. Where the file system allows it (POSIX), it is also
+ * deleted as soon as it is opened for reading, so that a stream which is
+ * never closed does not leave it behind.
+ *
+ * @param <T>
+ *            the type of the elements
+ */
+final class ExternalSortSpliterator<T> implements Spliterator<T>, AutoCloseable {
+
+	/** 一時ファイルの入出力のバッファのバイト数 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** メモリ上の並びの初期容量(要素数)の上限 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/** 同時に併合する(開く)並びの数の既定値 */
+	static final int FAN_IN = 64;
+
+	private final Spliterator<T> source;
+	private final Comparator<? super T> comparator;
+	private final Codec<T> codec;
+	private final int maxInMemory;
+	private final int fanIn;
+
+	private boolean started = false;
+
+	/** 作成した全ての一時ファイル(close で削除する) */
+	private final List<Run<T>> files = new ArrayList<Run<T>>();
+	private PriorityQueue<Run<T>> merge;
+
+	ExternalSortSpliterator(Spliterator<T> source, Comparator<? super T> comparator, Codec<T> codec, int maxInMemory) {
+		this(source, comparator, codec, maxInMemory, FAN_IN);
+	}
+
+	ExternalSortSpliterator(Spliterator<T> source, Comparator<? super T> comparator, Codec<T> codec, int maxInMemory,
+			int fanIn) {
+		if (fanIn < 2) {
+			throw new IllegalArgumentException("parameter fanIn must be 2 or more !! fanIn=" + fanIn);
+		}
+		this.source = source;
+		this.comparator = comparator;
+		this.codec = codec;
+		this.maxInMemory = maxInMemory;
+		this.fanIn = fanIn;
+	}
+
+	/** ソート済みの並び(一時ファイルまたはメモリ上) */
+	private static abstract class Run<T> {
+		/** 併合する並びの中の順番(同じ値の場合にこの順で出力して安定ソートにする) */
+		int index;
+		T head;
+
+		/** head を次の要素に進める。要素がなければ false */
+		abstract boolean advance();
+
+		void close() {
+		}
+	}
+
+	private static final class MemoryRun<T> extends Run<T> {
+		private final List<T> elements;
+		private int position = 0;
+
+		MemoryRun(List<T> elements) {
+			this.elements = elements;
+		}
+
+		@Override
+		boolean advance() {
+			if (position < elements.size()) {
+				head = elements.get(position++);
+				return true;
+			}
+			head = null;
+			return false;
+		}
+	}
+
+	private static final class FileRun<T> extends Run<T> {
+		private final Path file;
+		private final Codec<T> codec;
+		private long remaining;
+		private DataInputStream in;
+
+		FileRun(Path file, Codec<T> codec) {
+			this.file = file;
+			this.codec = codec;
+		}
+
+		@Override
+		boolean advance() {
+			if (remaining == 0) {
+				close();
+				return false;
+			}
+			try {
+				if (in == null) {
+					in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+					deleteIfPossible();
+				}
+				head = codec.read(in);
+				remaining--;
+				return true;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/** 開いたままのファイルを削除する(Windows などでは削除できないので close で消す) */
+		private void deleteIfPossible() {
+			try {
+				Files.delete(file);
+			} catch (IOException e) {
+				// close で削除する
+			}
+		}
+
+		@Override
+		void close() {
+			head = null;
+			remaining = 0;
+			try {
+				if (in != null) {
+					in.close();
+					in = null;
+				}
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/** 一時ファイルへの書き込み(書いた要素数を返す) */
+	private interface RunWriter {
+		long write(DataOutputStream out) throws IOException;
+	}
+
+	private void start() {
+		started = true;
+		final List<T> buffer = new ArrayList<T>(Math.min(maxInMemory, INITIAL_CAPACITY));
+		List<Run<T>> level = new ArrayList<Run<T>>();
+		final List<Run<T>> spilled = level;
+		source.forEachRemaining(t -> {
+			buffer.add(t);
+			if (buffer.size() == maxInMemory) {
+				buffer.sort(comparator);
+				spilled.add(writeRun(out -> {
+					for (T e : buffer) {
+						codec.write(e, out);
+					}
+					return buffer.size();
+				}));
+				buffer.clear();
+			}
+		});
+
+		// 最後の併合で開くファイルが fanIn 未満になるまで、隣り合う fanIn 個ずつを併合する
+		while (level.size() >= fanIn) {
+			final List<Run<T>> next = new ArrayList<Run<T>>((level.size() + fanIn - 1) / fanIn);
+			for (int from = 0; from < level.size(); from += fanIn) {
+				final List<Run<T>> group = level.subList(from, Math.min(from + fanIn, level.size()));
+				next.add(group.size() == 1 ? group.get(0) : mergeToFile(group));
+			}
+			level = next;
+		}
+
+		buffer.sort(comparator);
+		level.add(new MemoryRun<T>(buffer));
+		merge = mergeOf(level);
+	}
+
+	/** runs を併合する優先度付きキュー(先頭の要素に進めたもの) */
+	private PriorityQueue<Run<T>> mergeOf(List<Run<T>> runs) {
+		final PriorityQueue<Run<T>> queue = new PriorityQueue<Run<T>>(runs.size(), (r1, r2) -> {
+			final int c = comparator.compare(r1.head, r2.head);
+			return c != 0 ? c : Integer.compare(r1.index, r2.index);
+		});
+		for (int i = 0; i < runs.size(); i++) {
+			final Run<T> run = runs.get(i);
+			run.index = i;
+			if (run.advance()) {
+				queue.add(run);
+			}
+		}
+		return queue;
+	}
+
+	private Run<T> mergeToFile(List<Run<T>> group) {
+		final PriorityQueue<Run<T>> queue = mergeOf(group);
+		return writeRun(out -> {
+			long count = 0;
+			Run<T> run;
+			while ((run = queue.poll()) != null) {
+				codec.write(run.head, out);
+				count++;
+				if (run.advance()) {
+					queue.add(run);
+				}
+			}
+			return count;
+		});
+	}
+
+	private Run<T> writeRun(RunWriter writer) {
+		try {
+			final Path file = Files.createTempFile("ext-java8-sort-", ".run");
+			final FileRun<T> run = new FileRun<T>(file, codec);
+			files.add(run);
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+				run.remaining = writer.write(out);
+			}
+			return run;
+		} catch (IOException | RuntimeException e) {
+			try {
+				close();
+			} catch (RuntimeException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		if (!started) {
+			start();
+		}
+		final Run<T> run = merge.poll();
+		if (run == null) {
+			return false;
+		}
+		final T t = run.head;
+		if (run.advance()) {
+			merge.add(run);
+		}
+		action.accept(t);
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<T> trySplit() {
+		return null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long estimateSize() {
+		return started ? Long.MAX_VALUE : source.estimateSize();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int characteristics() {
+		return ORDERED;
+	}
+
+	/** 残っている一時ファイルを削除する */
+	@Override
+	public void close() {
+		RuntimeException exception = null;
+		for (Run<T> run : files) {
+			try {
+				run.close();
+			} catch (RuntimeException e) {
+				if (exception == null) {
+					exception = e;
+				} else {
+					exception.addSuppressed(e);
+				}
+			}
+		}
+		if (exception != null) {
+			throw exception;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package jp.que.ti.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+
+import jp.que.ti.stream.Param.Tuple;
+
+/**
+ * Where and how often {@link StreamUtils#foldLeftResumable} saves its
+ * progress: a local file holding the number of elements consumed and the
+ * accumulator, encoded with a {@link Codec}.
+ *
+ * <pre>
+ * FoldCheckpoint&lt;Tuple&lt;Long, Double&gt;&gt; checkpoint = FoldCheckpoint
+ * 		.of(Paths.get("/var/tmp/nightly.ckpt"), Codec.tuple(Codec.longValue(), Codec.doubleValue()))
+ * 		.everyElements(1000000).every(Duration.ofMinutes(5));
+ * </pre>
+ *
+ * A checkpoint is taken when either of the intervals has passed; the time is
+ * looked at every {@value #TIME_CHECK_INTERVAL} elements. The file is
+ * replaced atomically, so a crash while writing leaves the previous
+ * checkpoint.
+ *
+ * @param <ACCUM>
+ *            the type of the accumulator
+ */
+public final class FoldCheckpoint<ACCUM> {
+
+	/** ファイルの先頭に書く印(形式を変えたら変える) */
+	private static final int MAGIC = 0x464f4c31; // "FOL1"
+
+	/** 時刻はこの要素数ごとに見る */
+	static final int TIME_CHECK_INTERVAL = 1024;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Checkpoints to {@code file}, every 1,000,000 elements.
+	 *
+	 * @param file
+	 *            the checkpoint file; a temporary file is created next to it
+	 *            while writing
+	 * @param codec
+	 *            encodes the accumulator
+	 * @return the checkpoint settings
+	 */
+	public static <ACCUM> FoldCheckpoint<ACCUM> of(Path file, Codec<ACCUM> codec) {
+		return new FoldCheckpoint<ACCUM>(file, codec, 1000000, 0);
+	}
+
+	private final Path file;
+	private final Codec<ACCUM> codec;
+	private final long everyElements;
+	private final long everyNanos;
+
+	private FoldCheckpoint(Path file, Codec<ACCUM> codec, long everyElements, long everyNanos) {
+		this.file = file;
+		this.codec = codec;
+		this.everyElements = everyElements;
+		this.everyNanos = everyNanos;
+	}
+
+	/**
+	 * @param elements
+	 *            the number of elements between checkpoints, 0 not to count
+	 * @return a copy with the interval changed
+	 */
+	public FoldCheckpoint<ACCUM> everyElements(long elements) {
+		if (elements < 0) {
+			throw new IllegalArgumentException("parameter elements must not be negative !! elements=" + elements);
+		}
+		return new FoldCheckpoint<ACCUM>(file, codec, elements, everyNanos);
+	}
+
+	/**
+	 * @param interval
+	 *            the time between checkpoints, {@link Duration#ZERO} not to
+	 *            look at the time
+	 * @return a copy with the interval changed
+	 */
+	public FoldCheckpoint<ACCUM> every(Duration interval) {
+		if (interval.isNegative()) {
+			throw new IllegalArgumentException("parameter interval must not be negative !! interval=" + interval);
+		}
+		return new FoldCheckpoint<ACCUM>(file, codec, everyElements, interval.toNanos());
+	}
+
+	public Path file() {
+		return file;
+	}
+
+	/**
+	 * Reads the latest checkpoint.
+	 *
+	 * @return the number of elements consumed and the accumulator, empty if
+	 *         there is no checkpoint
+	 * @throws UncheckedIOException
+	 *             if the file cannot be read or is not a checkpoint
+	 */
+	public Option<Tuple<Long, ACCUM>> load() {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("not a fold checkpoint !! file=" + file);
+			}
+			final long position = in.readLong();
+			return Option.of(Param.t2(position, codec.read(in)));
+		} catch (NoSuchFileException e) {
+			return Option.empty();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Replaces the checkpoint with {@code position} and {@code accumulator}.
+	 *
+	 * @throws UncheckedIOException
+	 *             if the file cannot be written
+	 */
+	public void save(long position, ACCUM accumulator) {
+		final Path absolute = file.toAbsolutePath();
+		try {
+			final Path tmp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+			try {
+				try (DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE))) {
+					out.writeInt(MAGIC);
+					out.writeLong(position);
+					codec.write(accumulator, out);
+				}
+				Files.move(tmp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Deletes the checkpoint, if any.
+	 *
+	 * @throws UncheckedIOException
+	 *             if the file cannot be deleted
+	 */
+	public void delete() {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/** consumed 個目の要素の後、前回の保存(時刻 lastSavedNanos)から見て保存するか */
+	boolean isDue(long consumed, long lastSavedNanos) {
+		return everyElements > 0 && consumed % everyElements == 0 //
+				|| everyNanos > 0 && consumed % TIME_CHECK_INTERVAL == 0
+						&& System.nanoTime() - lastSavedNanos >= everyNanos;
+	}
+}
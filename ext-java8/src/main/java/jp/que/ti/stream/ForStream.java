@@ -0,0 +1,240 @@
+package jp.que.ti.stream;
+
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import jp.que.ti.stream.Param.Tuple;
+import jp.que.ti.stream.Param.Tuple3;
+import jp.que.ti.stream.Param.Tuple4;
+import jp.que.ti.stream.Param.Tuple5;
+
+/**
+ * A lazy for-comprehension over {@link Stream}s, the stream counterpart of
+ * {@link OptionalUtils#forYield}.
+ *
+ * <pre>
+ * Stream&lt;Tuple3&lt;Integer, Integer, Integer&gt;&gt; triangles = StreamUtils.forStream(IntStream.rangeClosed(1, 20).boxed())
+ * 		.flatMap(a -&gt; IntStream.rangeClosed(a, 20).boxed()) //
+ * 		.flatMap((a, b) -&gt; IntStream.rangeClosed(b, 20).boxed()) //
+ * 		.where(t -&gt; t._1 * t._1 + t._2 * t._2 == t._3 * t._3) //
+ * 		.stream();
+ * </pre>
+ *
+ * Each {@code flatMap} adds a generator which may depend on the values of the
+ * outer ones, and each {@code where} adds a guard on the innermost generator.
+ * A guard prunes before the inner generators are invoked. The resulting stream
+ * is parallel if the outermost stream is, and splits on the outermost
+ * generator.
+ */
+public class ForStream {
+	private ForStream() {
+	}
+
+	/** 1 つ目のジェネレータから始める */
+	static <A> Gen1<A> of(Stream<A> streamA) {
+		return new Gen1<A>(streamA);
+	}
+
+	/** ジェネレータの並びとガードの共通部分 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static abstract class Gen {
+		final Stream<?> outermost;
+		final Function[] generators;
+		final Predicate[] guards;
+
+		/** 1 つ目のジェネレータ(outermost そのもの)だけ */
+		Gen(Stream<?> outermost) {
+			this(outermost, new Function[] { null }, new Predicate[1]);
+		}
+
+		Gen(Stream<?> outermost, Function[] generators, Predicate[] guards) {
+			this.outermost = outermost;
+			this.generators = generators;
+			this.guards = guards;
+		}
+
+		/** 最も内側のジェネレータにガードを追加した guards */
+		Predicate[] guarded(Predicate<Object[]> guard) {
+			final Predicate[] gs = guards.clone();
+			final int i = gs.length - 1;
+			gs[i] = gs[i] == null ? guard : gs[i].and(guard);
+			return gs;
+		}
+
+		/** ジェネレータを 1 つ追加した generators */
+		Function[] generated(Function<Object[], ? extends Stream<?>> generator) {
+			final Function[] gens = Arrays.copyOf(generators, generators.length + 1);
+			gens[generators.length] = generator;
+			return gens;
+		}
+
+		Predicate[] guardAdded() {
+			return Arrays.copyOf(guards, guards.length + 1);
+		}
+
+		<R> Stream<R> yieldWith(Function<Object[], ? extends R> yield) {
+			final ForStreamSpliterator<R> spliterator = new ForStreamSpliterator<R>(outermost.spliterator() //
+					, generators, guards, yield);
+			return StreamSupport.stream(spliterator, outermost.isParallel()) //
+					.onClose(spliterator::close) //
+					.onClose(outermost::close);
+		}
+	}
+
+	/**
+	 * A for-comprehension with one generator.
+	 */
+	@SuppressWarnings("unchecked")
+	public static final class Gen1<A> extends Gen {
+		private Gen1(Stream<?> outermost) {
+			super(outermost);
+		}
+
+		@SuppressWarnings("rawtypes")
+		private Gen1(Stream<?> outermost, Function[] generators, Predicate[] guards) {
+			super(outermost, generators, guards);
+		}
+
+		public Gen1<A> where(Predicate<? super A> guard) {
+			return new Gen1<A>(outermost, generators, guarded(vs -> guard.test((A) vs[0])));
+		}
+
+		public <B> Gen2<A, B> flatMap(Function<? super A, ? extends Stream<B>> generator) {
+			return new Gen2<A, B>(outermost //
+					, generated(vs -> generator.apply((A) vs[0])), guardAdded());
+		}
+
+		public <R> Stream<R> yield(Function<? super A, ? extends R> operator) {
+			return yieldWith(vs -> operator.apply((A) vs[0]));
+		}
+
+		public Stream<A> stream() {
+			return yieldWith(vs -> (A) vs[0]);
+		}
+	}
+
+	/**
+	 * A for-comprehension with two generators.
+	 */
+	@SuppressWarnings("unchecked")
+	public static final class Gen2<A, B> extends Gen {
+		@SuppressWarnings("rawtypes")
+		private Gen2(Stream<?> outermost, Function[] generators, Predicate[] guards) {
+			super(outermost, generators, guards);
+		}
+
+		public Gen2<A, B> where(BiPredicate<? super A, ? super B> guard) {
+			return new Gen2<A, B>(outermost, generators, guarded(vs -> guard.test((A) vs[0], (B) vs[1])));
+		}
+
+		public <C> Gen3<A, B, C> flatMap(BiFunction<? super A, ? super B, ? extends Stream<C>> generator) {
+			return new Gen3<A, B, C>(outermost //
+					, generated(vs -> generator.apply((A) vs[0], (B) vs[1])), guardAdded());
+		}
+
+		public <R> Stream<R> yield(BiFunction<? super A, ? super B, ? extends R> operator) {
+			return yieldWith(vs -> operator.apply((A) vs[0], (B) vs[1]));
+		}
+
+		public Stream<Tuple<A, B>> stream() {
+			return yieldWith(vs -> Param.t2((A) vs[0], (B) vs[1]));
+		}
+	}
+
+	/**
+	 * A for-comprehension with three generators.
+	 */
+	@SuppressWarnings("unchecked")
+	public static final class Gen3<A, B, C> extends Gen {
+		@SuppressWarnings("rawtypes")
+		private Gen3(Stream<?> outermost, Function[] generators, Predicate[] guards) {
+			super(outermost, generators, guards);
+		}
+
+		public Gen3<A, B, C> where(Predicate<? super Tuple3<A, B, C>> guard) {
+			return new Gen3<A, B, C>(outermost, generators, guarded(vs -> guard.test(tuple(vs))));
+		}
+
+		public <D> Gen4<A, B, C, D> flatMap(Function<? super Tuple3<A, B, C>, ? extends Stream<D>> generator) {
+			return new Gen4<A, B, C, D>(outermost //
+					, generated(vs -> generator.apply(tuple(vs))), guardAdded());
+		}
+
+		public <R> Stream<R> yield(Function<? super Tuple3<A, B, C>, ? extends R> operator) {
+			return yieldWith(vs -> operator.apply(tuple(vs)));
+		}
+
+		public Stream<Tuple3<A, B, C>> stream() {
+			return yieldWith(vs -> tuple(vs));
+		}
+
+		private static <A, B, C> Tuple3<A, B, C> tuple(Object[] vs) {
+			return Param.t3((A) vs[0], (B) vs[1], (C) vs[2]);
+		}
+	}
+
+	/**
+	 * A for-comprehension with four generators.
+	 */
+	@SuppressWarnings("unchecked")
+	public static final class Gen4<A, B, C, D> extends Gen {
+		@SuppressWarnings("rawtypes")
+		private Gen4(Stream<?> outermost, Function[] generators, Predicate[] guards) {
+			super(outermost, generators, guards);
+		}
+
+		public Gen4<A, B, C, D> where(Predicate<? super Tuple4<A, B, C, D>> guard) {
+			return new Gen4<A, B, C, D>(outermost, generators, guarded(vs -> guard.test(tuple(vs))));
+		}
+
+		public <E> Gen5<A, B, C, D, E> flatMap(Function<? super Tuple4<A, B, C, D>, ? extends Stream<E>> generator) {
+			return new Gen5<A, B, C, D, E>(outermost //
+					, generated(vs -> generator.apply(tuple(vs))), guardAdded());
+		}
+
+		public <R> Stream<R> yield(Function<? super Tuple4<A, B, C, D>, ? extends R> operator) {
+			return yieldWith(vs -> operator.apply(tuple(vs)));
+		}
+
+		public Stream<Tuple4<A, B, C, D>> stream() {
+			return yieldWith(vs -> tuple(vs));
+		}
+
+		private static <A, B, C, D> Tuple4<A, B, C, D> tuple(Object[] vs) {
+			return Param.t4((A) vs[0], (B) vs[1], (C) vs[2], (D) vs[3]);
+		}
+	}
+
+	/**
+	 * A for-comprehension with five generators.
+	 */
+	@SuppressWarnings("unchecked")
+	public static final class Gen5<A, B, C, D, E> extends Gen {
+		@SuppressWarnings("rawtypes")
+		private Gen5(Stream<?> outermost, Function[] generators, Predicate[] guards) {
+			super(outermost, generators, guards);
+		}
+
+		public Gen5<A, B, C, D, E> where(Predicate<? super Tuple5<A, B, C, D, E>> guard) {
+			return new Gen5<A, B, C, D, E>(outermost, generators, guarded(vs -> guard.test(tuple(vs))));
+		}
+
+		public <R> Stream<R> yield(Function<? super Tuple5<A, B, C, D, E>, ? extends R> operator) {
+			return yieldWith(vs -> operator.apply(tuple(vs)));
+		}
+
+		public Stream<Tuple5<A, B, C, D, E>> stream() {
+			return yieldWith(vs -> tuple(vs));
+		}
+
+		private static <A, B, C, D, E> Tuple5<A, B, C, D, E> tuple(Object[] vs) {
+			return Param.t5((A) vs[0], (B) vs[1], (C) vs[2], (D) vs[3], (E) vs[4]);
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+package jp.que.ti.stream;
+
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * The engine of {@link ForStream}. Walks a chain of dependent generators
+ * depth first, keeping the current value of every generator in one reused
+ * array, so that no intermediate stream pipeline is created per element.
+ *
+ * <p>
+ * A guard is tested as soon as the value of its generator is known, so the
+ * generators below a rejected value are never invoked. Splitting is done on
+ * the outermost generator only.
+ *
+ * <p>
+ * An inner generator stream is closed when it is exhausted. The ones still
+ * open when the traversal stops early (short-circuit, exception) are closed
+ * by {@link #close()}, which closes them in all the split parts.
+ *
+ * @param <R>
+ *            the type of the yielded elements
+ */
+final class ForStreamSpliterator<R> implements Spliterator<R>, Consumer<Object> {
+
+	private final Function<Object[], ? extends Stream<?>>[] generators;
+	private final Predicate<Object[]>[] guards;
+	private final Function<Object[], ? extends R> yield;
+
+	/** 各ジェネレータの現在の値(要素毎に再利用する) */
+	private final Object[] values;
+
+	/** 各ジェネレータの走査位置(iterators[0] は最も外側) */
+	private final Spliterator<?>[] iterators;
+	private final Stream<?>[] streams;
+
+	/** 次に進めるジェネレータ */
+	private int depth = 0;
+
+	/** tryAdvance で受け取った要素の一時置き場 */
+	private Object current;
+
+	/** 分割で生まれたものを含む全ての部分(close で内側のストリームを閉じるため) */
+	private final Queue<ForStreamSpliterator<R>> parts;
+
+	ForStreamSpliterator(Spliterator<?> outermost //
+			, Function<Object[], ? extends Stream<?>>[] generators //
+			, Predicate<Object[]>[] guards //
+			, Function<Object[], ? extends R> yield) {
+		this(outermost, generators, guards, yield, new ConcurrentLinkedQueue<ForStreamSpliterator<R>>());
+	}
+
+	private ForStreamSpliterator(Spliterator<?> outermost //
+			, Function<Object[], ? extends Stream<?>>[] generators //
+			, Predicate<Object[]>[] guards //
+			, Function<Object[], ? extends R> yield, Queue<ForStreamSpliterator<R>> parts) {
+		this.parts = parts;
+		parts.add(this);
+		this.generators = generators;
+		this.guards = guards;
+		this.yield = yield;
+		this.values = new Object[generators.length];
+		this.iterators = new Spliterator<?>[generators.length];
+		this.streams = new Stream<?>[generators.length];
+		this.iterators[0] = outermost;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void accept(Object t) {
+		current = t;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean tryAdvance(Consumer<? super R> action) {
+		final int last = values.length - 1;
+		int level = depth;
+		while (true) {
+			if (!iterators[level].tryAdvance(this)) {
+				if (level == 0) {
+					depth = 0;
+					return false;
+				}
+				iterators[level] = null;
+				streams[level].close();
+				streams[level] = null;
+				level--;
+				continue;
+			}
+
+			values[level] = current;
+			current = null;
+			if (guards[level] != null && !guards[level].test(values)) {
+				continue;
+			}
+			if (level == last) {
+				depth = level;
+				action.accept(yield.apply(values));
+				return true;
+			}
+
+			level++;
+			final Stream<?> s = generators[level].apply(values);
+			streams[level] = s;
+			iterators[level] = s.spliterator();
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<R> trySplit() {
+		if (depth != 0 || iterators.length > 1 && iterators[1] != null) {
+			return null;
+		}
+		final Spliterator<?> split = iterators[0].trySplit();
+		if (split == null) {
+			return null;
+		}
+		return new ForStreamSpliterator<R>(split, generators, guards, yield, parts);
+	}
+
+	/**
+	 * Closes the inner generator streams still open in this spliterator and
+	 * in the parts split from it, innermost first. Called when the stream is
+	 * closed, after the traversal.
+	 */
+	void close() {
+		RuntimeException exception = null;
+		for (ForStreamSpliterator<R> part : parts) {
+			for (int level = part.streams.length - 1; level > 0; level--) {
+				final Stream<?> s = part.streams[level];
+				if (s == null) {
+					continue;
+				}
+				part.streams[level] = null;
+				part.iterators[level] = null;
+				try {
+					s.close();
+				} catch (RuntimeException e) {
+					if (exception == null) {
+						exception = e;
+					} else {
+						exception.addSuppressed(e);
+					}
+				}
+			}
+			part.depth = 0;
+		}
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long estimateSize() {
+		return values.length == 1 ? iterators[0].estimateSize() : Long.MAX_VALUE;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int characteristics() {
+		return iterators[0].characteristics() & ORDERED;
+	}
+}
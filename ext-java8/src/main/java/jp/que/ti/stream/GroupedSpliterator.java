@@ -0,0 +1,159 @@
+package jp.que.ti.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} which chunks the source elements into lists of
+ * {@code size} elements. Only the last chunk may be smaller.
+ *
+ * <p>
+ * {@link #trySplit()} always splits on a chunk boundary. When the source is
+ * {@link Spliterator#SUBSIZED SUBSIZED} and splits in the middle of a chunk,
+ * the missing elements (at most {@code size - 1}) are taken from the head of
+ * the remaining part and appended to the prefix. Sources of unknown size are
+ * split by copying a batch of whole chunks into an array.
+ *
+ * @param <T>
+ *            the type of the source elements
+ */
+final class GroupedSpliterator<T> implements Spliterator<List<T>>, Consumer<T> {
+
+	/** サイズ不明なソースを分割する際にまとめて取り出す要素数の目安 */
+	static final int BATCH_ELEMENTS = 1024;
+
+	private static final Object[] EMPTY = {};
+
+	private final Spliterator<T> source;
+	private final int size;
+
+	/** source の後ろに続く要素(分割の際に隣から借りてきたもの) */
+	private Object[] tail;
+	private int tailIndex = 0;
+
+	/** tryAdvance で受け取った要素の一時置き場 */
+	private T current;
+
+	GroupedSpliterator(Spliterator<T> source, int size) {
+		this(source, size, EMPTY);
+	}
+
+	private GroupedSpliterator(Spliterator<T> source, int size, Object[] tail) {
+		this.source = source;
+		this.size = size;
+		this.tail = tail;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void accept(T t) {
+		current = t;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean tryAdvance(Consumer<? super List<T>> action) {
+		final List<T> chunk = take(size);
+		if (chunk.isEmpty()) {
+			return false;
+		}
+		action.accept(chunk);
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void forEachRemaining(Consumer<? super List<T>> action) {
+		final ArrayList<List<T>> holder = new ArrayList<List<T>>(1);
+		holder.add(new ArrayList<T>(size));
+		source.forEachRemaining(t -> {
+			final List<T> chunk = holder.get(0);
+			chunk.add(t);
+			if (chunk.size() == size) {
+				holder.set(0, new ArrayList<T>(size));
+				action.accept(chunk);
+			}
+		});
+		List<T> chunk = holder.get(0);
+		while (tailIndex < tail.length) {
+			fillFromTail(chunk, size);
+			if (chunk.size() == size) {
+				action.accept(chunk);
+				chunk = new ArrayList<T>(size);
+			}
+		}
+		if (!chunk.isEmpty()) {
+			action.accept(chunk);
+		}
+	}
+
+	/** 先頭から最大 n 要素を取り出す(source が足りなければ tail からも取る) */
+	private List<T> take(int n) {
+		final List<T> chunk = new ArrayList<T>(n);
+		while (chunk.size() < n && source.tryAdvance(this)) {
+			chunk.add(current);
+		}
+		current = null;
+		fillFromTail(chunk, n);
+		return chunk;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void fillFromTail(List<T> chunk, int n) {
+		while (chunk.size() < n && tailIndex < tail.length) {
+			chunk.add((T) tail[tailIndex++]);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<List<T>> trySplit() {
+		if (source.hasCharacteristics(SUBSIZED)) {
+			if (source.getExactSizeIfKnown() < 2L * size) {
+				return null;
+			}
+			final Spliterator<T> split = source.trySplit();
+			if (split == null) {
+				return null;
+			}
+			final int remainder = (int) (split.getExactSizeIfKnown() % size);
+			if (remainder == 0) {
+				return new GroupedSpliterator<T>(split, size);
+			}
+			return new GroupedSpliterator<T>(split, size, take(size - remainder).toArray());
+		}
+
+		final int batchSize = Math.max(1, BATCH_ELEMENTS / size) * size;
+		final Object[] batch = new Object[batchSize];
+		int n = 0;
+		while (n < batchSize && source.tryAdvance(this)) {
+			batch[n++] = current;
+		}
+		current = null;
+		if (n == 0) {
+			return null;
+		}
+		@SuppressWarnings("unchecked")
+		final Spliterator<T> prefix = (Spliterator<T>) Spliterators.spliterator(batch, 0, n, ORDERED);
+		return new GroupedSpliterator<T>(prefix, size);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long estimateSize() {
+		final long elements = source.estimateSize() + (tail.length - tailIndex);
+		if (elements < 0 || elements == Long.MAX_VALUE) {
+			return Long.MAX_VALUE;
+		}
+		return (elements + size - 1) / size;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int characteristics() {
+		return (source.characteristics() & (ORDERED | SIZED | SUBSIZED)) | NONNULL;
+	}
+}
@@ -0,0 +1,226 @@
+package jp.que.ti.stream;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link Spliterator} which joins the elements of a probe side against a
+ * hash table built from the other (build) side.
+ *
+ * <p>
+ * The hash table is built on the first traversal or split, and is then shared
+ * read-only by all the splits. Splitting is delegated to the probe side. When
+ * an outer join is requested, the build side elements that were never matched
+ * are reported after the probe side is exhausted, so the spliterator does not
+ * split.
+ *
+ * @param <P>
+ *            the type of the probe side elements
+ * @param <X>
+ *            the type of the build side elements
+ * @param <R>
+ *            the type of the joined elements
+ */
+final class HashJoinSpliterator<P, X, R> implements Spliterator<R>, Consumer<P> {
+
+	/** 同じキーの要素が複数ある場合に hash table に格納するリスト */
+	private static final class Bucket extends ArrayList<Object> {
+		private static final long serialVersionUID = 1L;
+	}
+
+	private final Spliterator<P> probe;
+	private final Function<? super P, ?> probeKey;
+	private final BiFunction<? super P, ? super X, ? extends R> both;
+
+	/** probe 側にのみある要素の変換(inner join の場合 null) */
+	private final Function<? super P, ? extends R> probeOnly;
+
+	/** build 側にのみある要素の変換(outer join でない場合 null) */
+	private final Function<? super X, ? extends R> buildOnly;
+
+	/** hash table を構築するまでの build 側 */
+	private Spliterator<X> build;
+	private Function<? super X, ?> buildKey;
+
+	/** キー → 要素 または {@link Bucket} */
+	private Map<Object, Object> table;
+
+	/** outer join の場合に一致した build 側のキー */
+	private Set<Object> matchedKeys;
+
+	/** tryAdvance で受け取った要素の一時置き場 */
+	private P current;
+
+	/** 報告途中の {@link Bucket} */
+	private P bucketProbe;
+	private Bucket bucket;
+	private int bucketIndex;
+
+	/** outer join の最後に報告する build 側の残り */
+	private Iterator<Map.Entry<Object, Object>> unmatched;
+	private Bucket unmatchedBucket;
+	private int unmatchedIndex;
+
+	HashJoinSpliterator(Spliterator<P> probe, Function<? super P, ?> probeKey //
+			, Spliterator<X> build, Function<? super X, ?> buildKey //
+			, BiFunction<? super P, ? super X, ? extends R> both //
+			, Function<? super P, ? extends R> probeOnly //
+			, Function<? super X, ? extends R> buildOnly) {
+		this.probe = probe;
+		this.probeKey = probeKey;
+		this.build = build;
+		this.buildKey = buildKey;
+		this.both = both;
+		this.probeOnly = probeOnly;
+		this.buildOnly = buildOnly;
+	}
+
+	private HashJoinSpliterator(Spliterator<P> probe, HashJoinSpliterator<P, X, R> parent) {
+		this.probe = probe;
+		this.probeKey = parent.probeKey;
+		this.both = parent.both;
+		this.probeOnly = parent.probeOnly;
+		this.buildOnly = parent.buildOnly;
+		this.table = parent.table;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void accept(P t) {
+		current = t;
+	}
+
+	private void buildTable() {
+		if (table != null) {
+			return;
+		}
+		final Map<Object, Object> t = new HashMap<Object, Object>();
+		final Function<? super X, ?> key = buildKey;
+		build.forEachRemaining(x -> {
+			final Object k = key.apply(x);
+			final Object found = t.putIfAbsent(k, x);
+			if (found instanceof Bucket) {
+				((Bucket) found).add(x);
+			} else if (found != null) {
+				final Bucket b = new Bucket();
+				b.add(found);
+				b.add(x);
+				t.put(k, b);
+			}
+		});
+		table = t;
+		build = null;
+		buildKey = null;
+		if (buildOnly != null) {
+			matchedKeys = new HashSet<Object>();
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean tryAdvance(Consumer<? super R> action) {
+		buildTable();
+		while (true) {
+			if (bucket != null) {
+				if (bucketIndex < bucket.size()) {
+					action.accept(both.apply(bucketProbe, (X) bucket.get(bucketIndex++)));
+					return true;
+				}
+				bucket = null;
+				bucketProbe = null;
+			}
+
+			if (unmatched == null && probe.tryAdvance(this)) {
+				final P p = current;
+				current = null;
+				final Object k = probeKey.apply(p);
+				final Object found = table.get(k);
+				if (found == null) {
+					if (probeOnly != null) {
+						action.accept(probeOnly.apply(p));
+						return true;
+					}
+					continue;
+				}
+				if (matchedKeys != null) {
+					matchedKeys.add(k);
+				}
+				if (found instanceof Bucket) {
+					bucketProbe = p;
+					bucket = (Bucket) found;
+					bucketIndex = 0;
+					continue;
+				}
+				action.accept(both.apply(p, (X) found));
+				return true;
+			}
+
+			return matchedKeys != null && tryAdvanceUnmatched(action);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean tryAdvanceUnmatched(Consumer<? super R> action) {
+		if (unmatched == null) {
+			unmatched = table.entrySet().iterator();
+		}
+		while (true) {
+			if (unmatchedBucket != null) {
+				if (unmatchedIndex < unmatchedBucket.size()) {
+					action.accept(buildOnly.apply((X) unmatchedBucket.get(unmatchedIndex++)));
+					return true;
+				}
+				unmatchedBucket = null;
+			}
+			if (!unmatched.hasNext()) {
+				return false;
+			}
+			final Map.Entry<Object, Object> e = unmatched.next();
+			if (matchedKeys.contains(e.getKey())) {
+				continue;
+			}
+			if (e.getValue() instanceof Bucket) {
+				unmatchedBucket = (Bucket) e.getValue();
+				unmatchedIndex = 0;
+				continue;
+			}
+			action.accept(buildOnly.apply((X) e.getValue()));
+			return true;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<R> trySplit() {
+		if (buildOnly != null || bucket != null) {
+			return null;
+		}
+		buildTable();
+		final Spliterator<P> split = probe.trySplit();
+		if (split == null) {
+			return null;
+		}
+		return new HashJoinSpliterator<P, X, R>(split, this);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long estimateSize() {
+		return probe.estimateSize();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int characteristics() {
+		return probe.characteristics() & ORDERED;
+	}
+}
@@ -0,0 +1,33 @@
+package jp.que.ti.stream;
+
+/**
+ * Hash functions shared by the approximate (sketch) data structures.
+ */
+final class Hashing {
+	private Hashing() {
+	}
+
+	/**
+	 * Spreads {@link Object#hashCode()} of {@code o} over 64 bits with the
+	 * finalizer of MurmurHash3. {@code null} is hashed as 0. Only 2^32 values
+	 * are possible, and elements with the same hash code get the same hash.
+	 */
+	static long hash64(Object o) {
+		return mix64(o == null ? 0 : o.hashCode());
+	}
+
+	/**
+	 * The finalizer of MurmurHash3: spreads the bits of {@code h} so that the
+	 * result can be split into independent parts. Applied to the hashes given
+	 * by the callers too, in case they are weak in some bits.
+	 */
+	static long mix64(long h) {
+		h += 0x9E3779B97F4A7C15L;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
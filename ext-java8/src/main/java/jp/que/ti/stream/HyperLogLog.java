@@ -0,0 +1,86 @@
+package jp.que.ti.stream;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct elements in
+ * {@code 2^precision} bytes, whatever the number of elements added.
+ *
+ * <p>
+ * Elements are given as 64-bit hashes (see {@link Hashing}), so elements with
+ * the same hash are counted once. The relative standard error is about
+ * {@code 1.04 / sqrt(2^precision)}. Not thread-safe; use {@link #merge} to
+ * combine sketches built in parallel.
+ */
+final class HyperLogLog {
+
+	static final int MIN_PRECISION = 4;
+	static final int MAX_PRECISION = 18;
+
+	private final int precision;
+	private final byte[] registers;
+
+	HyperLogLog(int precision) {
+		checkPrecision(precision);
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+
+	static void checkPrecision(int precision) {
+		if (precision < MIN_PRECISION || MAX_PRECISION < precision) {
+			throw new IllegalArgumentException("parameter precision must be between " + MIN_PRECISION + " and "
+					+ MAX_PRECISION + " !! precision=" + precision);
+		}
+	}
+
+	void add(long hash) {
+		final long h = Hashing.mix64(hash);
+		final int index = (int) (h >>> (64 - precision));
+		// 残りのビットの先頭の 0 の数 + 1 (番兵ビットで最大値を抑える)
+		final int rank = Long.numberOfLeadingZeros((h << precision) | (1L << (precision - 1))) + 1;
+		if (registers[index] < rank) {
+			registers[index] = (byte) rank;
+		}
+	}
+
+	HyperLogLog merge(HyperLogLog other) {
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("precision mismatch !! " + precision + " != " + other.precision);
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (registers[i] < other.registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+		return this;
+	}
+
+	long estimate() {
+		final int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte r : registers) {
+			sum += 1.0 / (1L << r);
+			if (r == 0) {
+				zeros++;
+			}
+		}
+		final double estimate = alpha(m) * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0) {
+			// linear counting
+			return Math.round(m * Math.log((double) m / zeros));
+		}
+		return Math.round(estimate);
+	}
+
+	private static double alpha(int m) {
+		switch (m) {
+		case 16:
+			return 0.673;
+		case 32:
+			return 0.697;
+		case 64:
+			return 0.709;
+		default:
+			return 0.7213 / (1 + 1.079 / m);
+		}
+	}
+}
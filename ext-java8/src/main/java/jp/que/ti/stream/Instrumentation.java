@@ -0,0 +1,343 @@
+package jp.que.ti.stream;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Opt-in counters and timers of the {@link Option} / {@link Either} hot paths.
+ * It is enabled by the system property
+ * {@code -Djp.que.ti.stream.instrumentation=true}; otherwise
+ * {@link #ENABLED} is a constant {@code false} and the JIT compiler removes
+ * every probe.
+ *
+ * <p>
+ * When enabled, the following are recorded with {@link LongAdder}s under the
+ * tag {@value #DEFAULT_TAG}:
+ * <ul>
+ * <li>{@code option.some}, {@code option.empty}: {@code Option}s created by
+ * {@link Option#of}, {@link Option#some} and {@link Option#empty}</li>
+ * <li>{@code option.lazy}: {@link Option.Lazy}s passed to
+ * {@link Probe#record(Option)} before their value is computed; they are not
+ * evaluated to tell a Some from an Empty</li>
+ * <li>{@code either.left}, {@code either.right}: {@code Either}s created by
+ * {@link Either#left} and {@link Either#right}</li>
+ * <li>{@code either.right.supplier}: the evaluations of {@code Right}
+ * suppliers, with their total time</li>
+ * <li>{@code either.flatMap}: the calls of the mapper of
+ * {@link Either#flatMapEither}, with their total time</li>
+ * </ul>
+ * A call site counts its own results under its own tag with
+ * {@link Probe#record(Either)} / {@link Probe#record(Option)} and
+ * {@link Probe#flatMapEither}.
+ *
+ * <pre>
+ * private static final Instrumentation.Probe USER_LOOKUP = Instrumentation.probe("user-lookup");
+ * ...
+ * return USER_LOOKUP.record(findUser(id));
+ * </pre>
+ *
+ * The values are exported to a metrics system by
+ * {@link #setRegistry(MetricsRegistry)}.
+ *
+ * <p>
+ * When enabled, the first {@link Tracer} found by {@link ServiceLoader} also
+ * receives spans of the expensive operations ({@code Right} supplier
+ * evaluations, {@link StreamUtils#foldLeft} runs with progress, the splits of
+ * parallel folds). The {@code ext-java8-jfr} module provides one which emits
+ * Java Flight Recorder events.
+ */
+public final class Instrumentation {
+	private Instrumentation() {
+	}
+
+	/** static final なので無効のときは JIT が計測コードを取り除く */
+	static final boolean ENABLED = Boolean.getBoolean("jp.que.ti.stream.instrumentation");
+
+	public static final String DEFAULT_TAG = "default";
+
+	/** Tracer に渡す操作の名前 */
+	public static final String RIGHT_SUPPLIER = "either.right.supplier";
+	public static final String FOLD_LEFT = "foldLeft";
+	public static final String FOLD_BY_KEY = "foldByKey";
+
+	/** ServiceLoader で読み込む Tracer が probe(...) を呼べるように、TRACER より先に初期化する */
+	private static final Map<String, Probe> probes = new ConcurrentHashMap<String, Probe>();
+
+	private static MetricsRegistry registry = null;
+
+	/** 既定のタグの Probe */
+	static final Probe DEFAULT = probe(DEFAULT_TAG);
+
+	/** foldLeft が {@link Tracer#progress} を呼ぶ間隔(要素数) */
+	static final long PROGRESS_INTERVAL = 1 << 16;
+
+	/**
+	 * Receives spans of expensive operations. Implementations are found by
+	 * {@link ServiceLoader} when the instrumentation is enabled, and must be
+	 * thread safe.
+	 */
+	public interface Tracer {
+		/**
+		 * Called when {@code operation} starts.
+		 *
+		 * @return the span passed to {@link #progress} and {@link #end}
+		 */
+		Object begin(String operation);
+
+		/**
+		 * Called periodically while a long operation runs.
+		 *
+		 * @param span
+		 *            the span returned by {@link #begin}
+		 * @param elements
+		 *            the number of elements processed so far
+		 */
+		void progress(Object span, long elements);
+
+		/**
+		 * Called when the operation ends, normally or not.
+		 *
+		 * @param span
+		 *            the span returned by {@link #begin}
+		 * @param elements
+		 *            the number of elements processed
+		 */
+		void end(Object span, long elements);
+
+		/**
+		 * Called when the source of a parallel {@code operation} is split.
+		 *
+		 * @param estimatedSize
+		 *            the estimated size of the split part
+		 */
+		void split(String operation, long estimatedSize);
+	}
+
+	/** 無効のとき、または実装が無いときは null */
+	static final Tracer TRACER = ENABLED ? loadTracer() : null;
+
+	private static Tracer loadTracer() {
+		final Iterator<Tracer> it = ServiceLoader.load(Tracer.class).iterator();
+		return it.hasNext() ? it.next() : null;
+	}
+
+	/**
+	 * Receives the metrics of each tag once, when it is first used or when
+	 * the registry is set. The suppliers return the current values.
+	 */
+	public interface MetricsRegistry {
+		/**
+		 * @param name
+		 *            the name of the counter, for example {@code either.left}
+		 * @param tag
+		 *            the tag
+		 * @param count
+		 *            the current count
+		 */
+		void counter(String name, String tag, LongSupplier count);
+
+		/**
+		 * @param name
+		 *            the name of the timer, for example
+		 *            {@code either.right.supplier}
+		 * @param tag
+		 *            the tag
+		 * @param count
+		 *            the current number of timed calls
+		 * @param totalNanos
+		 *            the current total time of the timed calls
+		 */
+		void timer(String name, String tag, LongSupplier count, LongSupplier totalNanos);
+	}
+
+	/**
+	 * The counters and timers of a tag.
+	 */
+	public static final class Probe {
+		private final String tag;
+		private final LongAdder some = new LongAdder();
+		private final LongAdder empty = new LongAdder();
+		private final LongAdder lazy = new LongAdder();
+		private final LongAdder left = new LongAdder();
+		private final LongAdder right = new LongAdder();
+		private final LongAdder supplierCount = new LongAdder();
+		private final LongAdder supplierNanos = new LongAdder();
+		private final LongAdder flatMapCount = new LongAdder();
+		private final LongAdder flatMapNanos = new LongAdder();
+
+		private Probe(String tag) {
+			this.tag = tag;
+		}
+
+		public String tag() {
+			return tag;
+		}
+
+		/**
+		 * Counts {@code either} as a Left or a Right of this tag.
+		 *
+		 * @return {@code either}
+		 */
+		public <L, R> Either<L, R> record(Either<L, R> either) {
+			if (ENABLED) {
+				(either.isLeft() ? left : right).increment();
+			}
+			return either;
+		}
+
+		/**
+		 * Counts {@code option} as a Some or an Empty of this tag. A
+		 * {@link Option.Lazy} whose value is not computed yet is counted as
+		 * {@code option.lazy} and is left unevaluated.
+		 *
+		 * @return {@code option}
+		 */
+		public <T> Option<T> record(Option<T> option) {
+			if (ENABLED) {
+				if (option instanceof Option.Lazy && !((Option.Lazy<T>) option).isEvaluated()) {
+					lazy.increment();
+				} else {
+					(option.isPresent() ? some : empty).increment();
+				}
+			}
+			return option;
+		}
+
+		/**
+		 * Same as {@link Either#flatMapEither(Function)}, timing
+		 * {@code mapper} under this tag.
+		 */
+		public <L, R, U> Either<L, U> flatMapEither(Either<L, R> either //
+				, Function<? super R, ? extends Either<L, ? extends U>> mapper) {
+			// DEFAULT には記録しない
+			return either.flatMapEither(mapper, ENABLED ? this : null);
+		}
+
+		void countSome() {
+			some.increment();
+		}
+
+		void countEmpty() {
+			empty.increment();
+		}
+
+		void countLeft() {
+			left.increment();
+		}
+
+		void countRight() {
+			right.increment();
+		}
+
+		void timeSupplier(long nanos) {
+			supplierNanos.add(nanos);
+			supplierCount.increment();
+		}
+
+		void timeFlatMap(long nanos) {
+			flatMapNanos.add(nanos);
+			flatMapCount.increment();
+		}
+
+		public long someCount() {
+			return some.sum();
+		}
+
+		public long emptyCount() {
+			return empty.sum();
+		}
+
+		public long lazyCount() {
+			return lazy.sum();
+		}
+
+		public long leftCount() {
+			return left.sum();
+		}
+
+		public long rightCount() {
+			return right.sum();
+		}
+
+		public long rightSupplierCount() {
+			return supplierCount.sum();
+		}
+
+		public long rightSupplierNanos() {
+			return supplierNanos.sum();
+		}
+
+		public long flatMapCount() {
+			return flatMapCount.sum();
+		}
+
+		public long flatMapNanos() {
+			return flatMapNanos.sum();
+		}
+
+		private void registerTo(MetricsRegistry registry) {
+			registry.counter("option.some", tag, this::someCount);
+			registry.counter("option.empty", tag, this::emptyCount);
+			registry.counter("option.lazy", tag, this::lazyCount);
+			registry.counter("either.left", tag, this::leftCount);
+			registry.counter("either.right", tag, this::rightCount);
+			registry.timer("either.right.supplier", tag, this::rightSupplierCount, this::rightSupplierNanos);
+			registry.timer("either.flatMap", tag, this::flatMapCount, this::flatMapNanos);
+		}
+
+		@Override
+		public String toString() {
+			return "Probe(" + tag + ", some: " + someCount() + ", empty: " + emptyCount() + ", lazy: " + lazyCount()
+					+ ", left: " + leftCount()
+					+ ", right: " + rightCount() + ", supplier: " + rightSupplierCount() + "/" + rightSupplierNanos()
+					+ "ns, flatMap: " + flatMapCount() + "/" + flatMapNanos() + "ns)";
+		}
+	}
+
+	/**
+	 * @return {@code true} if the instrumentation is enabled
+	 */
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Returns the probe of {@code tag}, creating it on the first call. Keep
+	 * it in a static field at the call site.
+	 */
+	public static Probe probe(String tag) {
+		final Probe probe = probes.get(tag);
+		if (probe != null) {
+			return probe;
+		}
+		synchronized (Instrumentation.class) {
+			Probe created = probes.get(tag);
+			if (created == null) {
+				created = new Probe(tag);
+				probes.put(tag, created);
+				if (registry != null) {
+					created.registerTo(registry);
+				}
+			}
+			return created;
+		}
+	}
+
+	/**
+	 * Sets the registry the metrics are exported to. The metrics of the
+	 * existing tags are registered at once.
+	 */
+	public static synchronized void setRegistry(MetricsRegistry metricsRegistry) {
+		registry = metricsRegistry;
+		if (metricsRegistry != null) {
+			for (Probe probe : probes.values()) {
+				probe.registerTo(metricsRegistry);
+			}
+		}
+	}
+}
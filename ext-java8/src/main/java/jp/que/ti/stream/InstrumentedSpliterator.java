@@ -0,0 +1,143 @@
+package jp.que.ti.stream;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} which reports to a {@link StageSink} each element
+ * with the time the downstream action took, the end of the source, and the
+ * close of the stream. The spliterators split from one another share a
+ * {@link Run}, so a parallel stream is reported as one run.
+ *
+ * @param <T>
+ *            the type of the elements
+ */
+final class InstrumentedSpliterator<T> implements Spliterator<T> {
+
+	/** 分割したものも含めた 1 回の実行の状態 */
+	static final class Run {
+		private final String stage;
+		private final StageSink sink;
+		private final AtomicLong startNanos = new AtomicLong();
+		private final LongAdder elements = new LongAdder();
+
+		/** 使い切っていない spliterator の数 */
+		private final AtomicInteger active = new AtomicInteger(1);
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		Run(String stage, StageSink sink) {
+			this.stage = stage;
+			this.sink = sink;
+		}
+
+		private void start() {
+			if (startNanos.get() == 0) {
+				startNanos.compareAndSet(0, System.nanoTime());
+			}
+		}
+
+		private long elapsedNanos() {
+			final long start = startNanos.get();
+			return start == 0 ? 0 : System.nanoTime() - start;
+		}
+
+		private void exhausted() {
+			if (active.decrementAndGet() == 0) {
+				sink.completed(stage, elements.sum(), elapsedNanos());
+			}
+		}
+
+		/** Stream の onClose から呼ぶ */
+		void close() {
+			if (closed.compareAndSet(false, true)) {
+				sink.closed(stage, elements.sum(), elapsedNanos(), startNanos.get() != 0 && active.get() > 0);
+			}
+		}
+	}
+
+	private final Spliterator<T> source;
+	private final Run run;
+	private boolean exhausted = false;
+
+	InstrumentedSpliterator(Spliterator<T> source, Run run) {
+		this.source = source;
+		this.run = run;
+	}
+
+	private void timed(Consumer<? super T> action, T t) {
+		final long start = System.nanoTime();
+		action.accept(t);
+		run.sink.element(run.stage, System.nanoTime() - start);
+		run.elements.increment();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		if (exhausted) {
+			return false;
+		}
+		run.start();
+		if (source.tryAdvance(t -> timed(action, t))) {
+			return true;
+		}
+		exhausted = true;
+		run.exhausted();
+		return false;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void forEachRemaining(Consumer<? super T> action) {
+		if (exhausted) {
+			return;
+		}
+		run.start();
+		source.forEachRemaining(t -> timed(action, t));
+		exhausted = true;
+		run.exhausted();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<T> trySplit() {
+		if (exhausted) {
+			return null;
+		}
+		final Spliterator<T> prefix = source.trySplit();
+		if (prefix == null) {
+			return null;
+		}
+		run.active.incrementAndGet();
+		return new InstrumentedSpliterator<T>(prefix, run);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long estimateSize() {
+		return source.estimateSize();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long getExactSizeIfKnown() {
+		return source.getExactSizeIfKnown();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int characteristics() {
+		return source.characteristics();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Comparator<? super T> getComparator() {
+		return source.getComparator();
+	}
+}
@@ -0,0 +1,304 @@
+package jp.que.ti.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Hands values (usually the {@code Left}s of a stream, see
+ * {@link StreamUtils#teeLefts(java.util.stream.Stream, LeftTee)}) to a
+ * consumer on a background thread, in batches. The values wait in a bounded
+ * queue; when it is full, {@link Overflow} decides whether the caller waits
+ * or a value is dropped.
+ *
+ * <pre>
+ * try (LeftTee&lt;ParseError&gt; errors = LeftTee.of(deadLetters::writeAll, 10000, 500, Overflow.DROP_NEWEST);
+ * 		Stream&lt;Record&gt; records = StreamUtils.teeLefts(parsed, errors)) {
+ * 	records.forEach(store);
+ * }
+ * </pre>
+ *
+ * An exception or error thrown by the consumer is counted by
+ * {@link #failedBatchCount()} and the batch is discarded; the background
+ * thread goes on with the next batch. A {@link VirtualMachineError} (such as
+ * {@link OutOfMemoryError}) is counted too, but it stops the thread and is
+ * rethrown by {@link #close()}. Once the thread has stopped, the values are
+ * dropped instead of blocking the caller, as are the values accepted while
+ * the tee is being closed that the thread could not take any more.
+ *
+ * @param <L>
+ *            the type of the values
+ */
+public final class LeftTee<L> implements Consumer<L>, AutoCloseable {
+
+	/**
+	 * What to do with a value when the queue is full.
+	 */
+	public enum Overflow {
+		/** wait until the queue has room (back-pressure) */
+		BLOCK,
+		/** drop the value */
+		DROP_NEWEST,
+		/** drop the oldest value in the queue */
+		DROP_OLDEST
+	}
+
+	/**
+	 * @param batchConsumer
+	 *            receives the batches on the background thread
+	 * @param capacity
+	 *            the maximum number of values waiting in the queue
+	 * @param batchSize
+	 *            the maximum number of values in a batch
+	 * @param overflow
+	 *            what to do when the queue is full
+	 * @return the started tee
+	 */
+	public static <L> LeftTee<L> of(Consumer<? super List<L>> batchConsumer, int capacity, int batchSize,
+			Overflow overflow) {
+		if (capacity <= 0 || batchSize <= 0) {
+			throw new IllegalArgumentException(
+					"capacity and batchSize must be positive !! capacity=" + capacity + ", batchSize=" + batchSize);
+		}
+		final LeftTee<L> tee = new LeftTee<L>(batchConsumer, capacity, batchSize, overflow);
+		tee.worker.start();
+		return tee;
+	}
+
+	/** 終了を知らせる印 */
+	private static final Object STOP = new Object();
+
+	/** キューが満杯のとき、この間隔で background thread が生きているかを見る */
+	private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+	private final Consumer<? super List<L>> batchConsumer;
+	private final int batchSize;
+	private final Overflow overflow;
+	private final BlockingQueue<Object> queue;
+	private final Thread worker;
+
+	/**
+	 * accept した数と処理(または捨てた)数。flush はこの 2 つが揃うのを待つ。
+	 * accept のたびにロックを取らないよう LongAdder にする
+	 */
+	private final LongAdder enqueued = new LongAdder();
+	private final LongAdder done = new LongAdder();
+
+	/** flush で待っているスレッド(done が増えたら起こす) */
+	private final Queue<Thread> flushWaiters = new ConcurrentLinkedQueue<Thread>();
+
+	/** background thread を止めた VirtualMachineError */
+	private volatile Throwable fatalError = null;
+
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder consumed = new LongAdder();
+	private final LongAdder failedBatches = new LongAdder();
+
+	private volatile boolean closed = false;
+
+	private LeftTee(Consumer<? super List<L>> batchConsumer, int capacity, int batchSize, Overflow overflow) {
+		this.batchConsumer = batchConsumer;
+		this.batchSize = batchSize;
+		this.overflow = overflow;
+		this.queue = new ArrayBlockingQueue<Object>(capacity);
+		this.worker = new Thread(this::run, "left-tee-" + THREAD_NUMBER.incrementAndGet());
+		this.worker.setDaemon(true);
+	}
+
+	/**
+	 * Queues {@code value} for the background consumer.
+	 *
+	 * @throws IllegalStateException
+	 *             if this tee is closed
+	 */
+	@Override
+	public void accept(L value) {
+		if (closed) {
+			throw new IllegalStateException("LeftTee is closed !! ");
+		}
+		enqueued.increment();
+		if (enqueue(value) && closed && !worker.isAlive()) {
+			// close と競合し、background thread が止まった後に入れた。誰も取り出さないので取り戻して捨てた数に入れる
+			// (close が先に取り出していれば remove は false)
+			if (queue.remove(value)) {
+				drop(1);
+			}
+		}
+	}
+
+	/** @return キューに入れたら true、捨てたら false */
+	private boolean enqueue(L value) {
+		switch (overflow) {
+		case BLOCK:
+			try {
+				if (offerWhileWorkerAlive(value)) {
+					return true;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			drop(1);
+			return false;
+		case DROP_NEWEST:
+			if (queue.offer(value)) {
+				return true;
+			}
+			drop(1);
+			return false;
+		default: // DROP_OLDEST
+			while (!queue.offer(value)) {
+				if (queue.poll() != null) {
+					drop(1);
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * queue.put と同じだが、background thread が死んでいたら待つのをやめて false
+	 * を返す(誰もキューを空けないので put では戻ってこない)
+	 */
+	private boolean offerWhileWorkerAlive(Object value) throws InterruptedException {
+		while (!queue.offer(value, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+			if (!worker.isAlive()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void drop(int n) {
+		dropped.add(n);
+		finished(n);
+	}
+
+	private void finished(int n) {
+		done.add(n);
+		if (!flushWaiters.isEmpty()) {
+			for (Thread waiter : flushWaiters) {
+				LockSupport.unpark(waiter);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void run() {
+		final List<Object> batch = new ArrayList<Object>(batchSize);
+		while (true) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				return;
+			}
+			queue.drainTo(batch, batchSize - 1);
+			final boolean stop = batch.remove(STOP);
+			if (!batch.isEmpty()) {
+				try {
+					batchConsumer.accept((List<L>) new ArrayList<Object>(batch));
+					consumed.add(batch.size());
+				} catch (VirtualMachineError e) {
+					// 続けても回復しないので記録して止まる(close が投げ直す)
+					failedBatches.increment();
+					fatalError = e;
+					throw e;
+				} catch (Throwable e) {
+					// Error でも background thread は止めない(止まると accept/close が待ち続ける)
+					failedBatches.increment();
+				} finally {
+					finished(batch.size());
+					batch.clear();
+				}
+			}
+			if (stop) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Waits until all the values queued so far have been consumed or dropped.
+	 */
+	public void flush() {
+		final long target = enqueued.sum();
+		final Thread current = Thread.currentThread();
+		flushWaiters.add(current);
+		try {
+			while (done.sum() < target && worker.isAlive()) {
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(OFFER_TIMEOUT_MILLIS));
+				if (Thread.interrupted()) {
+					current.interrupt();
+					return;
+				}
+			}
+		} finally {
+			flushWaiters.remove(current);
+		}
+	}
+
+	/**
+	 * Consumes the queued values, then stops the background thread. The
+	 * values which are still queued after the thread has stopped are counted
+	 * as dropped.
+	 *
+	 * @throws IllegalStateException
+	 *             if the background thread was stopped by a
+	 *             {@link VirtualMachineError}, which is the cause
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		flush();
+		try {
+			if (offerWhileWorkerAlive(STOP)) {
+				worker.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!worker.isAlive()) {
+			// STOP の後ろに入った値(accept が close と競合した)
+			final List<Object> late = new ArrayList<Object>();
+			queue.drainTo(late);
+			late.remove(STOP);
+			if (!late.isEmpty()) {
+				drop(late.size());
+			}
+		}
+		final Throwable error = fatalError;
+		if (error != null) {
+			throw new IllegalStateException("the background consumer was stopped by an error !! ", error);
+		}
+	}
+
+	/**
+	 * @return the number of values dropped because the queue was full, or
+	 *         because the background thread had stopped
+	 */
+	public long droppedCount() {
+		return dropped.sum();
+	}
+
+	/** @return the number of values handed to the consumer without failure */
+	public long consumedCount() {
+		return consumed.sum();
+	}
+
+	/** @return the number of batches whose consumer threw an exception */
+	public long failedBatchCount() {
+		return failedBatches.sum();
+	}
+}
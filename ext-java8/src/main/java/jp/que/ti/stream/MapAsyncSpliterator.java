@@ -0,0 +1,176 @@
+package jp.que.ti.stream;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link Spliterator} which starts an asynchronous call per source element,
+ * keeping at most {@code parallelism} calls in flight, and reports each result
+ * as an {@link Either}: {@link Either.Right} with the value, or
+ * {@link Either.Left} with the failure. A call completing with {@code null},
+ * or a mapper returning a {@code null} future, is reported as a
+ * {@link NullPointerException}.
+ *
+ * <p>
+ * In ordered mode the results are reported in the order of the source
+ * elements, so a slow call holds back the results behind it. In unordered mode
+ * they are reported as soon as they complete.
+ *
+ * @param <T>
+ *            the type of the source elements
+ * @param <R>
+ *            the type of the results
+ */
+final class MapAsyncSpliterator<T, R> implements Spliterator<Either<Throwable, R>>, Consumer<T>, AutoCloseable {
+
+	private final Spliterator<T> source;
+	private final int parallelism;
+	private final Function<? super T, ? extends CompletableFuture<? extends R>> mapper;
+	private final boolean ordered;
+
+	/** 実行中の呼び出し(開始順) */
+	private final ArrayDeque<CompletableFuture<? extends R>> inFlight;
+
+	/** unordered の場合の完了した結果 */
+	private final LinkedBlockingQueue<Either<Throwable, R>> completed;
+
+	private boolean exhausted = false;
+
+	/** tryAdvance で受け取った要素の一時置き場 */
+	private T current;
+
+	MapAsyncSpliterator(Spliterator<T> source, int parallelism //
+			, Function<? super T, ? extends CompletableFuture<? extends R>> mapper, boolean ordered) {
+		this.source = source;
+		this.parallelism = parallelism;
+		this.mapper = mapper;
+		this.ordered = ordered;
+		this.inFlight = new ArrayDeque<CompletableFuture<? extends R>>(parallelism);
+		this.completed = ordered ? null : new LinkedBlockingQueue<Either<Throwable, R>>();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void accept(T t) {
+		current = t;
+	}
+
+	/** parallelism まで呼び出しを開始する */
+	private void fill() {
+		while (!exhausted && inFlight.size() < parallelism) {
+			if (!source.tryAdvance(this)) {
+				exhausted = true;
+				return;
+			}
+			final T t = current;
+			current = null;
+			CompletableFuture<? extends R> future;
+			try {
+				future = Objects.requireNonNull(mapper.apply(t), "the mapper returned a null future !! ");
+			} catch (RuntimeException e) {
+				final CompletableFuture<R> failed = new CompletableFuture<R>();
+				failed.completeExceptionally(e);
+				future = failed;
+			}
+			if (!ordered) {
+				future.whenComplete((r, e) -> completed.add(toEither(r, e)));
+			}
+			inFlight.add(future);
+		}
+	}
+
+	private static <R> Either<Throwable, R> toEither(R r, Throwable e) {
+		if (e != null) {
+			return Either.left(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+		}
+		if (r == null) {
+			return Either.left(new NullPointerException("async result is null !! "));
+		}
+		return Either.right(r);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean tryAdvance(Consumer<? super Either<Throwable, R>> action) {
+		fill();
+		if (inFlight.isEmpty()) {
+			return false;
+		}
+		if (ordered) {
+			final CompletableFuture<? extends R> head = inFlight.poll();
+			R r = null;
+			Throwable e = null;
+			try {
+				r = head.get();
+			} catch (ExecutionException ex) {
+				e = ex.getCause() != null ? ex.getCause() : ex;
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				e = ex;
+			} catch (RuntimeException ex) {
+				e = ex;
+			}
+			action.accept(toEither(r, e));
+			return true;
+		}
+
+		final Either<Throwable, R> result;
+		try {
+			result = completed.take();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			close();
+			action.accept(Either.left(ex));
+			return true;
+		}
+		removeCompleted();
+		action.accept(result);
+		return true;
+	}
+
+	/** 完了した呼び出しを inFlight から 1 つ取り除く */
+	private void removeCompleted() {
+		for (CompletableFuture<? extends R> f : inFlight) {
+			if (f.isDone()) {
+				inFlight.remove(f);
+				return;
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<Either<Throwable, R>> trySplit() {
+		return null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long estimateSize() {
+		final long size = source.estimateSize() + inFlight.size();
+		return size < 0 ? Long.MAX_VALUE : size;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int characteristics() {
+		return (ordered ? source.characteristics() & (ORDERED | SIZED) : 0) | NONNULL;
+	}
+
+	/** 実行中の呼び出しをキャンセルする */
+	@Override
+	public void close() {
+		for (CompletableFuture<? extends R> f : inFlight) {
+			f.cancel(false);
+		}
+		inFlight.clear();
+		exhausted = true;
+	}
+}
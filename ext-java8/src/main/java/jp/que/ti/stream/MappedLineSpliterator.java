@@ -0,0 +1,182 @@
+package jp.que.ti.stream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link Spliterator} of the lines of a byte range of a file, read through
+ * memory-mapped windows. Each line (without its {@code \n} or {@code \r\n}) is
+ * passed to the parser as the bytes between the position and the limit of a
+ * shared read-only {@link ByteBuffer}, so nothing is allocated per line but
+ * the parser's result.
+ *
+ * <p>
+ * The range always starts at the beginning of a line; {@link #trySplit()}
+ * cuts it after the first {@code \n} past its middle, so the parts can be
+ * parsed in parallel.
+ *
+ * @param <T>
+ *            the type of the records
+ */
+final class MappedLineSpliterator<T> implements Spliterator<Either<ParseError, T>> {
+
+	/** 一度にマップする最大バイト数 */
+	static final int MAX_WINDOW = 1 << 28;
+
+	/** 分割しない最小のバイト数 */
+	private static final long MIN_SPLIT = 1 << 16;
+
+	private final FileChannel channel;
+	private final Function<? super ByteBuffer, ? extends Either<ParseError, ? extends T>> parser;
+	private final int windowSize;
+
+	/** 次の行の先頭 */
+	private long pos;
+	private final long end;
+
+	private ByteBuffer window;
+	private long windowStart;
+
+	MappedLineSpliterator(FileChannel channel, long start, long end //
+			, Function<? super ByteBuffer, ? extends Either<ParseError, ? extends T>> parser, int windowSize) {
+		this.channel = channel;
+		this.pos = start;
+		this.end = end;
+		this.parser = parser;
+		this.windowSize = windowSize;
+	}
+
+	/** [from, from + size) をマップする */
+	private void map(long from, long size) {
+		try {
+			final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, size);
+			window = mapped.asReadOnlyBuffer();
+			windowStart = from;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean tryAdvance(Consumer<? super Either<ParseError, T>> action) {
+		if (pos >= end) {
+			return false;
+		}
+		if (window == null || pos >= windowStart + window.capacity()) {
+			map(pos, Math.min(windowSize, end - pos));
+		}
+		int from = (int) (pos - windowStart);
+		int newline = indexOfNewline(window, from);
+		while (newline < 0 && windowStart + window.capacity() < end) {
+			// 行が窓をはみ出すので、行の先頭から(窓より長い行なら広げて)マップし直す
+			final long size = pos == windowStart
+					? Math.min(Math.min((long) window.capacity() * 2, Integer.MAX_VALUE), end - pos)
+					: Math.min(windowSize, end - pos);
+			if (size <= window.capacity() && pos == windowStart) {
+				// 2GB を超える行は窓の終わりで切る
+				break;
+			}
+			map(pos, size);
+			from = 0;
+			newline = indexOfNewline(window, from);
+		}
+
+		final long lineStart = pos;
+		int to = newline >= 0 ? newline : window.capacity();
+		pos = windowStart + (newline >= 0 ? newline + 1 : window.capacity());
+		if (to > from && window.get(to - 1) == '\r') {
+			to--;
+		}
+		window.limit(to).position(from);
+		action.accept(parse(lineStart));
+		window.clear();
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Either<ParseError, T> parse(long lineStart) {
+		try {
+			final Either<ParseError, T> result = (Either<ParseError, T>) parser.apply(window);
+			if (result == null) {
+				return Either.left(ParseError.of("parser returned null").at(lineStart));
+			}
+			if (result.isLeft()) {
+				final ParseError error = result.getLeftOrNoSuchElementException();
+				return error.offset() >= 0 ? result : Either.left(error.at(lineStart));
+			}
+			return result;
+		} catch (RuntimeException e) {
+			return Either.left(ParseError.of(String.valueOf(e.getMessage()), e).at(lineStart));
+		}
+	}
+
+	private static int indexOfNewline(ByteBuffer buffer, int from) {
+		final int limit = buffer.capacity();
+		for (int i = from; i < limit; i++) {
+			if (buffer.get(i) == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<Either<ParseError, T>> trySplit() {
+		if (end - pos < MIN_SPLIT) {
+			return null;
+		}
+		final long cut = nextLineStart(pos + (end - pos) / 2);
+		if (cut <= pos || cut >= end) {
+			return null;
+		}
+		final MappedLineSpliterator<T> prefix = new MappedLineSpliterator<T>(channel, pos, cut, parser, windowSize);
+		pos = cut;
+		window = null;
+		return prefix;
+	}
+
+	/** at 以降で最初の行の先頭(at の直前が \n ならat)。無ければ end */
+	private long nextLineStart(long at) {
+		final ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long p = at - 1;
+		try {
+			while (p < end) {
+				buffer.clear();
+				final int n = channel.read(buffer, p);
+				if (n <= 0) {
+					return end;
+				}
+				for (int i = 0; i < n; i++) {
+					if (buffer.get(i) == '\n') {
+						return p + i + 1;
+					}
+				}
+				p += n;
+			}
+			return end;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long estimateSize() {
+		// 行数ではなく残りのバイト数(上限)
+		return end - pos;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL | IMMUTABLE;
+	}
+}
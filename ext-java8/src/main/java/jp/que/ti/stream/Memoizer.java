@@ -0,0 +1,359 @@
+package jp.que.ti.stream;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * A caching wrapper of a lookup function returning {@link Option} or
+ * {@link Either}. Positive results ({@link Option.Some},
+ * {@link Either.Right}) and negative results ({@link Option.Empty},
+ * {@link Either.Left}) are cached separately, each with its own time to live
+ * and size bound; the least recently used entries are evicted first.
+ *
+ * <pre>
+ * Memoizer&lt;String, Option&lt;User&gt;&gt; users = Memoizer.ofOption(dao::findUser //
+ * 		, 10000, Duration.ofMinutes(10) // Some
+ * 		, 1000, Duration.ofSeconds(30)); // Empty
+ * Option&lt;User&gt; user = users.apply("foo");
+ * </pre>
+ *
+ * The keys are spread over {@value #STRIPES} stripes, each with its own lock,
+ * so the size bounds are kept per stripe and are approximate. Concurrent
+ * misses for the same key call the lookup function only once; the other
+ * threads wait for its result. Exceptions thrown by the lookup function are
+ * not cached, and are rethrown as they are to all the waiting threads. A
+ * lookup function must not look up its own key: that would wait for itself
+ * forever, so it is reported by an {@link IllegalStateException}.
+ *
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the results
+ */
+public final class Memoizer<K, V> implements Function<K, V> {
+
+	static final int STRIPES = 16;
+
+	/**
+	 * Wraps a lookup function returning {@link Option}.
+	 *
+	 * @param loader
+	 *            the lookup function
+	 * @param maxSome
+	 *            the maximum number of cached {@code Some}s, 0 not to cache
+	 *            them
+	 * @param someTtl
+	 *            the time to live of cached {@code Some}s
+	 * @param maxEmpty
+	 *            the maximum number of cached {@code Empty}s, 0 not to cache
+	 *            them
+	 * @param emptyTtl
+	 *            the time to live of cached {@code Empty}s
+	 * @return the memoizer
+	 */
+	public static <K, V> Memoizer<K, Option<V>> ofOption(Function<? super K, Option<V>> loader //
+			, int maxSome, Duration someTtl, int maxEmpty, Duration emptyTtl) {
+		return new Memoizer<K, Option<V>>(loader, Option::isEmpty, maxSome, someTtl, maxEmpty, emptyTtl,
+				System::nanoTime);
+	}
+
+	/**
+	 * Wraps a lookup function returning {@link Either}.
+	 *
+	 * @param loader
+	 *            the lookup function
+	 * @param maxRight
+	 *            the maximum number of cached {@code Right}s, 0 not to cache
+	 *            them
+	 * @param rightTtl
+	 *            the time to live of cached {@code Right}s
+	 * @param maxLeft
+	 *            the maximum number of cached {@code Left}s, 0 not to cache
+	 *            them
+	 * @param leftTtl
+	 *            the time to live of cached {@code Left}s
+	 * @return the memoizer
+	 */
+	public static <K, L, R> Memoizer<K, Either<L, R>> ofEither(Function<? super K, Either<L, R>> loader //
+			, int maxRight, Duration rightTtl, int maxLeft, Duration leftTtl) {
+		return new Memoizer<K, Either<L, R>>(loader, Either::isLeft, maxRight, rightTtl, maxLeft, leftTtl,
+				System::nanoTime);
+	}
+
+	/** 有効期限付きの結果 */
+	private static final class CacheEntry<V> {
+		final V value;
+		final long expiresAt;
+
+		CacheEntry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/** アクセス順で、容量を超えたら最も古いものを捨てる LinkedHashMap */
+	@SuppressWarnings("serial")
+	private static final class LruMap<K, V> extends LinkedHashMap<K, CacheEntry<V>> {
+		private final int capacity;
+		private final LongAdder evictions;
+
+		LruMap(int capacity, LongAdder evictions) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * 読み込み中の結果。invalidate で loading から外されたら、完了しても古い
+	 * かもしれないのでキャッシュしない(loading に入っているかで世代を見分ける)
+	 */
+	private static final class Load<V> {
+		final CompletableFuture<V> future = new CompletableFuture<V>();
+
+		/** 読み込むスレッド(自分のキーを読み込もうとしたことを見分ける) */
+		final Thread owner = Thread.currentThread();
+	}
+
+	/** ロックの単位 */
+	private static final class Stripe<K, V> {
+		final LruMap<K, V> positive;
+		final LruMap<K, V> negative;
+
+		/** 読み込み中のキー */
+		final Map<K, Load<V>> loading = new HashMap<K, Load<V>>();
+
+		Stripe(int positiveCapacity, int negativeCapacity, LongAdder evictions) {
+			this.positive = new LruMap<K, V>(positiveCapacity, evictions);
+			this.negative = new LruMap<K, V>(negativeCapacity, evictions);
+		}
+	}
+
+	private final Function<? super K, ? extends V> loader;
+	private final Predicate<? super V> isNegative;
+	private final int positiveCapacity;
+	private final long positiveTtlNanos;
+	private final int negativeCapacity;
+	private final long negativeTtlNanos;
+	private final LongSupplier nanoTime;
+
+	private final Stripe<K, V>[] stripes;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	@SuppressWarnings("unchecked")
+	Memoizer(Function<? super K, ? extends V> loader, Predicate<? super V> isNegative //
+			, int maxPositive, Duration positiveTtl, int maxNegative, Duration negativeTtl, LongSupplier nanoTime) {
+		if (maxPositive < 0 || maxNegative < 0) {
+			throw new IllegalArgumentException(
+					"size bounds must not be negative !! maxPositive=" + maxPositive + ", maxNegative=" + maxNegative);
+		}
+		this.loader = Objects.requireNonNull(loader);
+		this.isNegative = isNegative;
+		this.positiveCapacity = (maxPositive + STRIPES - 1) / STRIPES;
+		this.positiveTtlNanos = positiveTtl.toNanos();
+		this.negativeCapacity = (maxNegative + STRIPES - 1) / STRIPES;
+		this.negativeTtlNanos = negativeTtl.toNanos();
+		this.nanoTime = nanoTime;
+		this.stripes = (Stripe<K, V>[]) new Stripe<?, ?>[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe<K, V>(positiveCapacity, negativeCapacity, evictions);
+		}
+	}
+
+	private Stripe<K, V> stripeFor(Object key) {
+		return stripes[(int) Hashing.hash64(Objects.requireNonNull(key)) & (STRIPES - 1)];
+	}
+
+	/**
+	 * Returns the cached result for {@code key}, or calls the lookup function
+	 * and caches its result.
+	 *
+	 * @throws NullPointerException
+	 *             if {@code key} or the result of the lookup function is
+	 *             {@code null}
+	 * @throws IllegalStateException
+	 *             if the lookup function looks up the key it is loading
+	 */
+	@Override
+	public V apply(K key) {
+		final Stripe<K, V> stripe = stripeFor(key);
+		final Load<V> load;
+		final boolean owner;
+		synchronized (stripe) {
+			final V cached = lookup(stripe, key);
+			if (cached != null) {
+				hits.increment();
+				return cached;
+			}
+			misses.increment();
+			final Load<V> pending = stripe.loading.get(key);
+			owner = pending == null;
+			if (owner) {
+				load = new Load<V>();
+				stripe.loading.put(key, load);
+			} else if (pending.owner == Thread.currentThread()) {
+				throw new IllegalStateException("recursive load of the same key !! key=" + key);
+			} else {
+				load = pending;
+			}
+		}
+
+		if (!owner) {
+			try {
+				return load.future.join();
+			} catch (CompletionException e) {
+				// 読み込んだスレッドと同じ例外を投げる
+				final Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw e;
+			}
+		}
+
+		final V value;
+		try {
+			loads.increment();
+			value = Objects.requireNonNull(loader.apply(key), "the result of the loader is null !! ");
+		} catch (RuntimeException | Error e) {
+			synchronized (stripe) {
+				stripe.loading.remove(key, load);
+			}
+			load.future.completeExceptionally(e);
+			throw e;
+		}
+		synchronized (stripe) {
+			if (!stripe.loading.remove(key, load)) {
+				// 読み込み中に invalidate された。待っていたスレッドには返すが、キャッシュはしない
+			} else if (isNegative.test(value)) {
+				if (negativeCapacity > 0) {
+					stripe.negative.put(key, new CacheEntry<V>(value, nanoTime.getAsLong() + negativeTtlNanos));
+				}
+			} else if (positiveCapacity > 0) {
+				stripe.positive.put(key, new CacheEntry<V>(value, nanoTime.getAsLong() + positiveTtlNanos));
+			}
+		}
+		load.future.complete(value);
+		return value;
+	}
+
+	/** 有効な結果(無ければ null)。期限切れのものは取り除く */
+	private V lookup(Stripe<K, V> stripe, K key) {
+		LruMap<K, V> map = stripe.positive;
+		CacheEntry<V> entry = map.get(key);
+		if (entry == null) {
+			map = stripe.negative;
+			entry = map.get(key);
+			if (entry == null) {
+				return null;
+			}
+		}
+		if (entry.expiresAt - nanoTime.getAsLong() > 0) {
+			return entry.value;
+		}
+		map.remove(key);
+		expirations.increment();
+		return null;
+	}
+
+	/**
+	 * Removes the cached result for {@code key}. A load of {@code key} in
+	 * progress is not cached when it completes, as its result may be stale.
+	 */
+	public void invalidate(K key) {
+		final Stripe<K, V> stripe = stripeFor(key);
+		synchronized (stripe) {
+			stripe.positive.remove(key);
+			stripe.negative.remove(key);
+			stripe.loading.remove(key);
+		}
+	}
+
+	/**
+	 * Removes all the cached results. The loads in progress are not cached
+	 * when they complete.
+	 */
+	public void invalidateAll() {
+		for (Stripe<K, V> stripe : stripes) {
+			synchronized (stripe) {
+				stripe.positive.clear();
+				stripe.negative.clear();
+				stripe.loading.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of cached results, including expired ones not yet
+	 *         removed
+	 */
+	public long size() {
+		long size = 0;
+		for (Stripe<K, V> stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.positive.size() + stripe.negative.size();
+			}
+		}
+		return size;
+	}
+
+	/** @return the number of lookups answered from the cache */
+	public long hitCount() {
+		return hits.sum();
+	}
+
+	/** @return the number of lookups not answered from the cache */
+	public long missCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return the number of calls of the lookup function, less than
+	 *         {@link #missCount()} when concurrent misses shared a call
+	 */
+	public long loadCount() {
+		return loads.sum();
+	}
+
+	/** @return the number of results evicted by the size bounds */
+	public long evictionCount() {
+		return evictions.sum();
+	}
+
+	/** @return the number of results removed because they expired */
+	public long expirationCount() {
+		return expirations.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "Memoizer(hit: " + hitCount() + ", miss: " + missCount() + ", load: " + loadCount() + ", eviction: "
+				+ evictionCount() + ", expiration: " + expirationCount() + ")";
+	}
+}
@@ -0,0 +1,193 @@
+package jp.que.ti.stream;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link Spliterator} which joins two sources that are already sorted by
+ * key, walking both of them once.
+ *
+ * <p>
+ * Only the run of right elements sharing the current key is buffered, so the
+ * memory used does not depend on the length of the sources. An
+ * {@link IllegalStateException} is thrown when a source turns out not to be
+ * sorted. The traversal is sequential.
+ *
+ * @param <A>
+ *            the type of the left elements
+ * @param <B>
+ *            the type of the right elements
+ * @param <K>
+ *            the type of the key
+ * @param <R>
+ *            the type of the joined elements
+ */
+final class MergeJoinSpliterator<A, B, K, R> implements Spliterator<R> {
+
+	private final Spliterator<A> left;
+	private final Spliterator<B> right;
+	private final Function<? super A, ? extends K> leftKey;
+	private final Function<? super B, ? extends K> rightKey;
+	private final Comparator<? super K> comparator;
+	private final BiFunction<? super A, ? super B, ? extends R> both;
+
+	/** 左側にのみある要素の変換(inner join の場合 null) */
+	private final Function<? super A, ? extends R> leftOnly;
+
+	/** 右側にのみある要素の変換(outer join でない場合 null) */
+	private final Function<? super B, ? extends R> rightOnly;
+
+	private final Consumer<A> leftSetter = x -> a = x;
+	private final Consumer<B> rightSetter = x -> b = x;
+
+	private boolean started = false;
+
+	/** 左側の現在の要素 */
+	private A a;
+	private K aKey;
+	private boolean hasA;
+
+	/** 右側の先読み要素 */
+	private B b;
+	private K bKey;
+	private boolean hasB;
+
+	/** 右側で groupKey を持つ要素の並び(再利用する) */
+	private final ArrayList<B> group = new ArrayList<B>();
+	private K groupKey;
+	private boolean hasGroup = false;
+	private int groupIndex;
+
+	MergeJoinSpliterator(Spliterator<A> left, Function<? super A, ? extends K> leftKey //
+			, Spliterator<B> right, Function<? super B, ? extends K> rightKey //
+			, Comparator<? super K> comparator //
+			, BiFunction<? super A, ? super B, ? extends R> both //
+			, Function<? super A, ? extends R> leftOnly //
+			, Function<? super B, ? extends R> rightOnly) {
+		this.left = left;
+		this.leftKey = leftKey;
+		this.right = right;
+		this.rightKey = rightKey;
+		this.comparator = comparator;
+		this.both = both;
+		this.leftOnly = leftOnly;
+		this.rightOnly = rightOnly;
+	}
+
+	private void advanceLeft() {
+		final boolean first = !started || !hasA;
+		final K previous = aKey;
+		hasA = left.tryAdvance(leftSetter);
+		if (hasA) {
+			aKey = leftKey.apply(a);
+			if (!first && comparator.compare(previous, aKey) > 0) {
+				throw new IllegalStateException("left stream is not sorted by key !! " + previous + " > " + aKey);
+			}
+		} else {
+			a = null;
+		}
+	}
+
+	private void advanceRight() {
+		final boolean first = !started || !hasB;
+		final K previous = bKey;
+		hasB = right.tryAdvance(rightSetter);
+		if (hasB) {
+			bKey = rightKey.apply(b);
+			if (!first && comparator.compare(previous, bKey) > 0) {
+				throw new IllegalStateException("right stream is not sorted by key !! " + previous + " > " + bKey);
+			}
+		} else {
+			b = null;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean tryAdvance(Consumer<? super R> action) {
+		if (!started) {
+			advanceLeft();
+			advanceRight();
+			started = true;
+		}
+		while (true) {
+			if (hasGroup && hasA && comparator.compare(aKey, groupKey) == 0) {
+				if (groupIndex < group.size()) {
+					action.accept(both.apply(a, group.get(groupIndex++)));
+					return true;
+				}
+				advanceLeft();
+				groupIndex = 0;
+				continue;
+			}
+			if (hasGroup) {
+				hasGroup = false;
+				group.clear();
+			}
+
+			if (!hasA) {
+				if (rightOnly != null && hasB) {
+					action.accept(rightOnly.apply(b));
+					advanceRight();
+					return true;
+				}
+				return false;
+			}
+			if (!hasB) {
+				if (leftOnly != null) {
+					action.accept(leftOnly.apply(a));
+					advanceLeft();
+					return true;
+				}
+				return false;
+			}
+
+			final int c = comparator.compare(aKey, bKey);
+			if (c < 0) {
+				final A unmatched = a;
+				advanceLeft();
+				if (leftOnly != null) {
+					action.accept(leftOnly.apply(unmatched));
+					return true;
+				}
+			} else if (c > 0) {
+				final B unmatched = b;
+				advanceRight();
+				if (rightOnly != null) {
+					action.accept(rightOnly.apply(unmatched));
+					return true;
+				}
+			} else {
+				groupKey = bKey;
+				do {
+					group.add(b);
+					advanceRight();
+				} while (hasB && comparator.compare(bKey, groupKey) == 0);
+				hasGroup = true;
+				groupIndex = 0;
+			}
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<R> trySplit() {
+		return null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long estimateSize() {
+		return Long.MAX_VALUE;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int characteristics() {
+		return ORDERED;
+	}
+}
@@ -0,0 +1,245 @@
+package jp.que.ti.stream;
+
+import jp.que.ti.stream.Param.Tuple;
+import jp.que.ti.stream.Param.Tuple3;
+import jp.que.ti.stream.Param.Tuple4;
+import jp.que.ti.stream.Param.Tuple5;
+
+/**
+ * Mutable accumulators for {@link StreamUtils#foldInto}: the counterparts of
+ * the {@link Param} tuples with assignable fields, and boxes of primitive
+ * values. They are updated in place for each element, and only the final
+ * result is copied into an immutable {@link Param} tuple with
+ * {@code toTuple()}.
+ *
+ * <p>
+ * They do not override {@code equals}/{@code hashCode}, so that a mutable
+ * object is never used as a key by value.
+ */
+public class MutableParam {
+	private MutableParam() {
+	}
+
+	/**
+	 * A mutable pair of A,B
+	 */
+	public static class MutableTuple<A, B> {
+		public A _1;
+		public B _2;
+
+		public MutableTuple() {
+		}
+
+		public MutableTuple(A _1, B _2) {
+			this._1 = _1;
+			this._2 = _2;
+		}
+
+		public Tuple<A, B> toTuple() {
+			return Param.t2(_1, _2);
+		}
+
+		@Override
+		public String toString() {
+			return "MutableTuple2(_1: " + _1 + ", _2: " + _2 + ")";
+		}
+	}
+
+	/**
+	 * A mutable tuple of A,B,C
+	 */
+	public static class MutableTuple3<A, B, C> {
+		public A _1;
+		public B _2;
+		public C _3;
+
+		public MutableTuple3() {
+		}
+
+		public MutableTuple3(A _1, B _2, C _3) {
+			this._1 = _1;
+			this._2 = _2;
+			this._3 = _3;
+		}
+
+		public Tuple3<A, B, C> toTuple() {
+			return Param.t3(_1, _2, _3);
+		}
+
+		@Override
+		public String toString() {
+			return "MutableTuple3(_1: " + _1 + ", _2: " + _2 + ", _3:" + _3 + ")";
+		}
+	}
+
+	/**
+	 * A mutable tuple of A,B,C,D
+	 */
+	public static class MutableTuple4<A, B, C, D> {
+		public A _1;
+		public B _2;
+		public C _3;
+		public D _4;
+
+		public MutableTuple4() {
+		}
+
+		public MutableTuple4(A _1, B _2, C _3, D _4) {
+			this._1 = _1;
+			this._2 = _2;
+			this._3 = _3;
+			this._4 = _4;
+		}
+
+		public Tuple4<A, B, C, D> toTuple() {
+			return Param.t4(_1, _2, _3, _4);
+		}
+
+		@Override
+		public String toString() {
+			return "MutableTuple4(_1: " + _1 + ", _2: " + _2 + ", _3:" + _3 + ", _4:" + _4 + ")";
+		}
+	}
+
+	/**
+	 * A mutable tuple of A,B,C,D,E
+	 */
+	public static class MutableTuple5<A, B, C, D, E> {
+		public A _1;
+		public B _2;
+		public C _3;
+		public D _4;
+		public E _5;
+
+		public MutableTuple5() {
+		}
+
+		public MutableTuple5(A _1, B _2, C _3, D _4, E _5) {
+			this._1 = _1;
+			this._2 = _2;
+			this._3 = _3;
+			this._4 = _4;
+			this._5 = _5;
+		}
+
+		public Tuple5<A, B, C, D, E> toTuple() {
+			return Param.t5(_1, _2, _3, _4, _5);
+		}
+
+		@Override
+		public String toString() {
+			return "MutableTuple5(_1: " + _1 + ", _2: " + _2 + ", _3:" + _3 + ", _4:" + _4 + ", _5:" + _5 + ")";
+		}
+	}
+
+	/**
+	 * A mutable {@code long}, updated without boxing.
+	 */
+	public static class MutableLong {
+		public long value;
+
+		public MutableLong() {
+		}
+
+		public MutableLong(long value) {
+			this.value = value;
+		}
+
+		public long get() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return "MutableLong(" + value + ")";
+		}
+	}
+
+	/**
+	 * A mutable {@code double}, updated without boxing.
+	 */
+	public static class MutableDouble {
+		public double value;
+
+		public MutableDouble() {
+		}
+
+		public MutableDouble(double value) {
+			this.value = value;
+		}
+
+		public double get() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return "MutableDouble(" + value + ")";
+		}
+	}
+
+	/**
+	 * A pair of mutable {@code long}s, for example a count and a sum, updated
+	 * without boxing.
+	 */
+	public static class MutableLongs2 {
+		public long _1;
+		public long _2;
+
+		public Tuple<Long, Long> toTuple() {
+			return Param.t2(_1, _2);
+		}
+
+		@Override
+		public String toString() {
+			return "MutableLongs2(_1: " + _1 + ", _2: " + _2 + ")";
+		}
+	}
+
+	/**
+	 * A pair of a mutable {@code long} and a mutable {@code double}, for
+	 * example a count and a sum, updated without boxing.
+	 */
+	public static class MutableLongDouble {
+		public long _1;
+		public double _2;
+
+		public Tuple<Long, Double> toTuple() {
+			return Param.t2(_1, _2);
+		}
+
+		@Override
+		public String toString() {
+			return "MutableLongDouble(_1: " + _1 + ", _2: " + _2 + ")";
+		}
+	}
+
+	/**
+	 * Constructs a mutable tuple of A,B with {@code null} fields
+	 */
+	public static <A, B> MutableTuple<A, B> m2() {
+		return new MutableTuple<A, B>();
+	}
+
+	/**
+	 * Constructs a mutable tuple of A,B,C with {@code null} fields
+	 */
+	public static <A, B, C> MutableTuple3<A, B, C> m3() {
+		return new MutableTuple3<A, B, C>();
+	}
+
+	/**
+	 * Constructs a mutable tuple of A,B,C,D with {@code null} fields
+	 */
+	public static <A, B, C, D> MutableTuple4<A, B, C, D> m4() {
+		return new MutableTuple4<A, B, C, D>();
+	}
+
+	/**
+	 * Constructs a mutable tuple of A,B,C,D,E with {@code null} fields
+	 */
+	public static <A, B, C, D, E> MutableTuple5<A, B, C, D, E> m5() {
+		return new MutableTuple5<A, B, C, D, E>();
+	}
+
+}
@@ -32,6 +32,9 @@ public abstract class Option<T> implements Stream<T> {
 
 	@SuppressWarnings("unchecked")
 	public static <T> Empty<T> empty() {
+		if (Instrumentation.ENABLED) {
+			Instrumentation.DEFAULT.countEmpty();
+		}
 		return (Empty<T>) Empty.empty;
 	}
 
@@ -39,14 +42,46 @@ public abstract class Option<T> implements Stream<T> {
 		if (value == null) {
 			return Empty.empty();
 		}
+		if (Instrumentation.ENABLED) {
+			Instrumentation.DEFAULT.countSome();
+		}
 		return new Some<T>(value);
 	}
 
 	public static <T> Some<T> some(T value) {
 		final T v = Objects.requireNonNull(value);
+		if (Instrumentation.ENABLED) {
+			Instrumentation.DEFAULT.countSome();
+		}
 		return new Some<T>(v);
 	}
 
+	/**
+	 * Returns an {@code Option} whose value is computed by {@code supplier}
+	 * when it is first needed ({@link #isPresent()}, {@link #map(Function)},
+	 * {@link #orElseGet(Supplier)}, ...). The supplier is called at most once
+	 * even if several threads need the value at the same time, and is dropped
+	 * afterwards. If it returns {@code null} the {@code Option} is empty.
+	 *
+	 * <p>
+	 * The result is a {@link Lazy}, neither a {@link Some} nor an
+	 * {@link Empty}.
+	 *
+	 * @param supplier
+	 *            computes the value
+	 * @return the lazy {@code Option}
+	 */
+	public static <T> Lazy<T> lazy(Supplier<? extends T> supplier) {
+		return new Lazy<T>(Objects.requireNonNull(supplier));
+	}
+
+	/**
+	 * Converts the slim {@link jp.que.ti.core.Option} of the core artifact.
+	 */
+	public static <T> Option<T> fromCore(jp.que.ti.core.Option<T> option) {
+		return of(option.or(null));
+	}
+
 	public static class Some<T> extends Option<T> {
 		private Some(T value) {
 			super(value);
@@ -61,8 +96,56 @@ public abstract class Option<T> implements Stream<T> {
 		}
 	}
 
+	/**
+	 * An {@code Option} whose value is computed when it is first needed.
+	 *
+	 * @see Option#lazy(Supplier)
+	 */
+	public static class Lazy<T> extends Option<T> {
+		private static final Object UNSET = new Object();
+
+		/** 評価後は null にして参照を手放す */
+		private Supplier<? extends T> supplier;
+
+		private volatile Object result = UNSET;
+
+		private Lazy(Supplier<? extends T> supplier) {
+			super();
+			this.supplier = supplier;
+		}
+
+		/**
+		 * @return {@code true} if the value has been computed
+		 */
+		public boolean isEvaluated() {
+			return result != UNSET;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		T value() {
+			Object r = result;
+			if (r == UNSET) {
+				synchronized (this) {
+					r = result;
+					if (r == UNSET) {
+						r = supplier.get();
+						result = r;
+						supplier = null;
+					}
+				}
+			}
+			return (T) r;
+		}
+	}
+
 	private final T value;
 
+	/** 値(無ければ null) */
+	T value() {
+		return value;
+	}
+
 	/**
 	 * If a value is present in this {@code Optional}, returns the value,
 	 * otherwise throws {@code NoSuchElementException}.
@@ -72,10 +155,11 @@ public abstract class Option<T> implements Stream<T> {
 	 *             if there is no value present
 	 */
 	public T getOrNoSuchElementException() {
-		if (value == null) {
+		final T v = value();
+		if (v == null) {
 			throw new NoSuchElementException("No value present");
 		}
-		return value;
+		return v;
 	}
 
 	/**
@@ -84,7 +168,7 @@ public abstract class Option<T> implements Stream<T> {
 	 * @return {@code true} if there is a value present, otherwise {@code false}
 	 */
 	public boolean isPresent() {
-		return value != null;
+		return value() != null;
 	}
 
 	/**
@@ -97,8 +181,9 @@ public abstract class Option<T> implements Stream<T> {
 	 *             if value is present and {@code consumer} is null
 	 */
 	public void ifPresent(Consumer<? super T> consumer) {
-		if (value != null)
-			consumer.accept(value);
+		final T v = value();
+		if (v != null)
+			consumer.accept(v);
 	}
 
 	public boolean isEmpry() {
@@ -114,7 +199,8 @@ public abstract class Option<T> implements Stream<T> {
 	 * @return the value, if present, otherwise {@code other}
 	 */
 	public T or(T other) {
-		return value != null ? value : other;
+		final T v = value();
+		return v != null ? v : other;
 	}
 
 	/**
@@ -129,7 +215,8 @@ public abstract class Option<T> implements Stream<T> {
 	 *             if value is not present and {@code other} is null
 	 */
 	public T orElseGet(Supplier<? extends T> other) {
-		return value != null ? value : other.get();
+		final T v = value();
+		return v != null ? v : other.get();
 	}
 
 	/**
@@ -151,8 +238,9 @@ public abstract class Option<T> implements Stream<T> {
 	 *             if no value is present and {@code exceptionSupplier} is null
 	 */
 	public <X extends Throwable> T orElseThrow(Supplier<? extends X> exceptionSupplier) throws X {
-		if (value != null) {
-			return value;
+		final T v = value();
+		if (v != null) {
+			return v;
 		} else {
 			throw exceptionSupplier.get();
 		}
@@ -177,7 +265,15 @@ public abstract class Option<T> implements Stream<T> {
 		}
 
 		Option<?> other = (Option<?>) obj;
-		return Objects.equals(value, other.value);
+		return Objects.equals(value(), other.value());
+	}
+
+	/**
+	 * Converts to the slim {@link jp.que.ti.core.Option} of the core artifact,
+	 * which does not implement {@link Stream}.
+	 */
+	public jp.que.ti.core.Option<T> toCore() {
+		return jp.que.ti.core.Option.of(value());
 	}
 
 	/**
@@ -197,7 +293,7 @@ public abstract class Option<T> implements Stream<T> {
 
 	private Stream<T> stream() {
 		if (isPresent()) {
-			return Stream.of(value);
+			return Stream.of(value());
 		}
 		return Stream.empty();
 	}
@@ -0,0 +1,69 @@
+package jp.que.ti.stream;
+
+/**
+ * The failure to parse a record, with the byte offset of the record in its
+ * source when it is known.
+ *
+ * @see StreamUtils#mappedLines(java.nio.file.Path, java.util.function.Function)
+ */
+public final class ParseError {
+
+	/**
+	 * @param message
+	 *            what is wrong with the record
+	 * @return a parse error at an unknown offset
+	 */
+	public static ParseError of(String message) {
+		return new ParseError(-1, message, null);
+	}
+
+	/**
+	 * @param message
+	 *            what is wrong with the record
+	 * @param cause
+	 *            the exception thrown by the parser
+	 * @return a parse error at an unknown offset
+	 */
+	public static ParseError of(String message, Throwable cause) {
+		return new ParseError(-1, message, cause);
+	}
+
+	private final long offset;
+	private final String message;
+	private final Throwable cause;
+
+	private ParseError(long offset, String message, Throwable cause) {
+		this.offset = offset;
+		this.message = message;
+		this.cause = cause;
+	}
+
+	/** offset が未設定なら設定したものを返す */
+	ParseError at(long offset) {
+		return this.offset >= 0 ? this : new ParseError(offset, message, cause);
+	}
+
+	/**
+	 * @return the byte offset of the record in the source, -1 if unknown
+	 */
+	public long offset() {
+		return offset;
+	}
+
+	public String message() {
+		return message;
+	}
+
+	/**
+	 * @return the exception thrown by the parser, if any
+	 */
+	public Option<Throwable> cause() {
+		return Option.of(cause);
+	}
+
+	@Override
+	public String toString() {
+		return "ParseError(offset: " + offset + ", message: " + message + (cause != null ? ", cause: " + cause : "")
+				+ ")";
+	}
+}
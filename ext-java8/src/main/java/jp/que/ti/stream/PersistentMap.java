@@ -0,0 +1,422 @@
+package jp.que.ti.stream;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BinaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import jp.que.ti.stream.Param.Tuple;
+
+/**
+ * An immutable hash map with structural sharing, implemented as a hash array
+ * mapped trie (HAMT). {@link #put}, {@link #merge} and {@link #remove} copy
+ * only the nodes on the path to the key (at most 7 small arrays), so
+ * "updating" it inside {@link StreamUtils#foldLeft} does not copy the whole
+ * accumulator.
+ *
+ * <p>
+ * Neither keys nor values may be {@code null}.
+ *
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the values
+ */
+public final class PersistentMap<K, V> implements Iterable<Tuple<K, V>> {
+
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+
+	private static final PersistentMap<?, ?> EMPTY = new PersistentMap<Object, Object>(null, 0);
+
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentMap<K, V> empty() {
+		return (PersistentMap<K, V>) EMPTY;
+	}
+
+	private final Node root;
+	private final int size;
+
+	private PersistentMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	private static int hash(Object key) {
+		final int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the value of {@code key}, or {@link Option.Empty} if absent.
+	 */
+	@SuppressWarnings("unchecked")
+	public Option<V> get(K key) {
+		return Option.of(root == null ? null : (V) root.get(0, hash(key), key));
+	}
+
+	/**
+	 * Returns the value of {@code key}, or {@code defaultValue} if absent.
+	 */
+	@SuppressWarnings("unchecked")
+	public V getOr(K key, V defaultValue) {
+		final Object v = root == null ? null : root.get(0, hash(key), key);
+		return v == null ? defaultValue : (V) v;
+	}
+
+	public boolean containsKey(K key) {
+		return root != null && root.get(0, hash(key), key) != null;
+	}
+
+	/**
+	 * Returns a map with {@code key} mapped to {@code value}.
+	 */
+	public PersistentMap<K, V> put(K key, V value) {
+		Objects.requireNonNull(key, "parameter key is null !! ");
+		Objects.requireNonNull(value, "parameter value is null !! ");
+		final boolean[] added = { false };
+		final Node base = root == null ? BitmapNode.EMPTY : root;
+		final Node newRoot = base.put(0, hash(key), key, value, added);
+		if (newRoot == root) {
+			return this;
+		}
+		return new PersistentMap<K, V>(newRoot, added[0] ? size + 1 : size);
+	}
+
+	/**
+	 * Returns a map with {@code value} combined into the value of {@code key}
+	 * by {@code fn}, or with {@code key} mapped to {@code value} if absent,
+	 * like {@link java.util.Map#merge}.
+	 */
+	public PersistentMap<K, V> merge(K key, V value, BinaryOperator<V> fn) {
+		final V old = getOr(key, null);
+		return put(key, old == null ? value : fn.apply(old, value));
+	}
+
+	/**
+	 * Returns a map without {@code key}.
+	 */
+	public PersistentMap<K, V> remove(K key) {
+		if (root == null) {
+			return this;
+		}
+		final Node newRoot = root.remove(0, hash(key), key);
+		if (newRoot == root) {
+			return this;
+		}
+		return newRoot == null ? empty() : new PersistentMap<K, V>(newRoot, size - 1);
+	}
+
+	/** HAMT のノード */
+	private interface Node {
+		/** 値(なければ null) */
+		Object get(int shift, int hash, Object key);
+
+		Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+		/** キーを除いたノード(空になれば null) */
+		Node remove(int shift, int hash, Object key);
+
+		/** キーと値(または子ノード)を交互に並べた配列 */
+		Object[] array();
+	}
+
+	/**
+	 * ビットマップで使用中のスロットを表すノード。array[2i] はキー(子ノードの場合 null)、
+	 * array[2i+1] は値または子ノード。
+	 */
+	private static final class BitmapNode implements Node {
+		static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+		final int bitmap;
+		final Object[] array;
+
+		BitmapNode(int bitmap, Object[] array) {
+			this.bitmap = bitmap;
+			this.array = array;
+		}
+
+		@Override
+		public Object[] array() {
+			return array;
+		}
+
+		private int index(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		@Override
+		public Object get(int shift, int hash, Object key) {
+			final int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0) {
+				return null;
+			}
+			final int i = index(bit);
+			final Object k = array[2 * i];
+			final Object v = array[2 * i + 1];
+			if (k == null) {
+				return ((Node) v).get(shift + BITS, hash, key);
+			}
+			return key.equals(k) ? v : null;
+		}
+
+		@Override
+		public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+			final int bit = 1 << ((hash >>> shift) & MASK);
+			final int i = index(bit);
+			if ((bitmap & bit) == 0) {
+				final int n = Integer.bitCount(bitmap);
+				final Object[] newArray = new Object[2 * (n + 1)];
+				System.arraycopy(array, 0, newArray, 0, 2 * i);
+				newArray[2 * i] = key;
+				newArray[2 * i + 1] = value;
+				System.arraycopy(array, 2 * i, newArray, 2 * (i + 1), 2 * (n - i));
+				added[0] = true;
+				return new BitmapNode(bitmap | bit, newArray);
+			}
+
+			final Object k = array[2 * i];
+			final Object v = array[2 * i + 1];
+			if (k == null) {
+				final Node child = ((Node) v).put(shift + BITS, hash, key, value, added);
+				return child == v ? this : new BitmapNode(bitmap, cloneAndSet(array, 2 * i + 1, child));
+			}
+			if (key.equals(k)) {
+				return value == v ? this : new BitmapNode(bitmap, cloneAndSet(array, 2 * i + 1, value));
+			}
+			added[0] = true;
+			final Object[] newArray = cloneAndSet(array, 2 * i, null);
+			newArray[2 * i + 1] = createNode(shift + BITS, k, v, hash, key, value);
+			return new BitmapNode(bitmap, newArray);
+		}
+
+		@Override
+		public Node remove(int shift, int hash, Object key) {
+			final int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0) {
+				return this;
+			}
+			final int i = index(bit);
+			final Object k = array[2 * i];
+			final Object v = array[2 * i + 1];
+			if (k == null) {
+				final Node child = ((Node) v).remove(shift + BITS, hash, key);
+				if (child == v) {
+					return this;
+				}
+				if (child != null) {
+					return new BitmapNode(bitmap, cloneAndSet(array, 2 * i + 1, child));
+				}
+			} else if (!key.equals(k)) {
+				return this;
+			}
+			if (bitmap == bit) {
+				return null;
+			}
+			return new BitmapNode(bitmap ^ bit, removePair(array, i));
+		}
+	}
+
+	/** ハッシュ値が完全に一致するキーを並べたノード */
+	private static final class CollisionNode implements Node {
+		final int hash;
+		final Object[] array;
+
+		CollisionNode(int hash, Object[] array) {
+			this.hash = hash;
+			this.array = array;
+		}
+
+		@Override
+		public Object[] array() {
+			return array;
+		}
+
+		private int indexOf(Object key) {
+			for (int i = 0; i < array.length; i += 2) {
+				if (key.equals(array[i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public Object get(int shift, int hash, Object key) {
+			final int i = indexOf(key);
+			return i < 0 ? null : array[i + 1];
+		}
+
+		@Override
+		public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+			if (hash != this.hash) {
+				final Node nested = new BitmapNode(1 << ((this.hash >>> shift) & MASK), new Object[] { null, this });
+				return nested.put(shift, hash, key, value, added);
+			}
+			final int i = indexOf(key);
+			if (i >= 0) {
+				return array[i + 1] == value ? this : new CollisionNode(hash, cloneAndSet(array, i + 1, value));
+			}
+			final Object[] newArray = new Object[array.length + 2];
+			System.arraycopy(array, 0, newArray, 0, array.length);
+			newArray[array.length] = key;
+			newArray[array.length + 1] = value;
+			added[0] = true;
+			return new CollisionNode(hash, newArray);
+		}
+
+		@Override
+		public Node remove(int shift, int hash, Object key) {
+			final int i = indexOf(key);
+			if (i < 0) {
+				return this;
+			}
+			if (array.length == 2) {
+				return null;
+			}
+			return new CollisionNode(hash, removePair(array, i / 2));
+		}
+	}
+
+	private static Node createNode(int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+		final int h1 = hash(k1);
+		if (h1 == h2) {
+			return new CollisionNode(h1, new Object[] { k1, v1, k2, v2 });
+		}
+		final boolean[] added = { false };
+		return BitmapNode.EMPTY.put(shift, h1, k1, v1, added).put(shift, h2, k2, v2, added);
+	}
+
+	private static Object[] cloneAndSet(Object[] array, int i, Object o) {
+		final Object[] copy = array.clone();
+		copy[i] = o;
+		return copy;
+	}
+
+	private static Object[] removePair(Object[] array, int i) {
+		final Object[] newArray = new Object[array.length - 2];
+		System.arraycopy(array, 0, newArray, 0, 2 * i);
+		System.arraycopy(array, 2 * (i + 1), newArray, 2 * i, newArray.length - 2 * i);
+		return newArray;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Iterator<Tuple<K, V>> iterator() {
+		return new Iterator<Tuple<K, V>>() {
+			/** 走査中のノードの配列と位置 */
+			private final ArrayDeque<Object[]> arrays = new ArrayDeque<Object[]>();
+			private final ArrayDeque<int[]> positions = new ArrayDeque<int[]>();
+			private Tuple<K, V> next;
+
+			{
+				if (root != null) {
+					arrays.push(root.array());
+					positions.push(new int[] { 0 });
+				}
+				advance();
+			}
+
+			@SuppressWarnings("unchecked")
+			private void advance() {
+				next = null;
+				while (!arrays.isEmpty()) {
+					final Object[] array = arrays.peek();
+					final int[] position = positions.peek();
+					if (position[0] >= array.length) {
+						arrays.pop();
+						positions.pop();
+						continue;
+					}
+					final Object k = array[position[0]];
+					final Object v = array[position[0] + 1];
+					position[0] += 2;
+					if (k == null) {
+						arrays.push(((Node) v).array());
+						positions.push(new int[] { 0 });
+						continue;
+					}
+					next = Param.t2((K) k, (V) v);
+					return;
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public Tuple<K, V> next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				final Tuple<K, V> t = next;
+				advance();
+				return t;
+			}
+		};
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<Tuple<K, V>> spliterator() {
+		return Spliterators.spliterator(iterator(), size, Spliterator.DISTINCT | Spliterator.IMMUTABLE //
+				| Spliterator.NONNULL);
+	}
+
+	/** The entries as a stream of {@link Tuple} (key, value). */
+	public Stream<Tuple<K, V>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 0;
+		for (Tuple<K, V> t : this) {
+			result += t._1.hashCode() ^ t._2.hashCode();
+		}
+		return result;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof PersistentMap))
+			return false;
+		final PersistentMap<K, V> other = (PersistentMap<K, V>) obj;
+		if (size != other.size)
+			return false;
+		for (Tuple<K, V> t : this) {
+			if (!t._2.equals(other.getOr(t._1, null)))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("PersistentMap{");
+		String sep = "";
+		for (Tuple<K, V> t : this) {
+			sb.append(sep).append(t._1).append("=").append(t._2);
+			sep = ", ";
+		}
+		return sb.append("}").toString();
+	}
+}
@@ -0,0 +1,118 @@
+package jp.que.ti.stream;
+
+/**
+ * An immutable string which can be appended to in amortized O(1), for
+ * building strings inside {@link StreamUtils#foldLeft}.
+ *
+ * <pre>
+ * String s = StreamUtils.foldLeft(stream, PersistentString.empty(), PersistentString::append).toString();
+ * </pre>
+ *
+ * All the strings derived from one another share a single append-only
+ * buffer. A string covers the first {@link #length()} characters of the
+ * buffer, which are never modified. Appending to the newest string appends
+ * to the buffer in place; appending to an older string (a fork) copies its
+ * characters to a new buffer first.
+ */
+public final class PersistentString implements CharSequence {
+
+	private static final PersistentString EMPTY = new PersistentString(new StringBuilder(0), 0);
+
+	public static PersistentString empty() {
+		return EMPTY;
+	}
+
+	public static PersistentString of(CharSequence value) {
+		return new PersistentString(new StringBuilder(value), value.length());
+	}
+
+	/** 共有するバッファ(ロックもこのオブジェクトで取る) */
+	private final StringBuilder buffer;
+	private final int length;
+
+	private PersistentString(StringBuilder buffer, int length) {
+		this.buffer = buffer;
+		this.length = length;
+	}
+
+	/**
+	 * Returns this string followed by {@code String.valueOf(value)}.
+	 */
+	public PersistentString append(Object value) {
+		return append(String.valueOf(value));
+	}
+
+	/**
+	 * Returns this string followed by {@code value}.
+	 */
+	public PersistentString append(CharSequence value) {
+		if (value.length() == 0) {
+			return this;
+		}
+		if (this != EMPTY) {
+			synchronized (buffer) {
+				if (buffer.length() == length) {
+					buffer.append(value);
+					return new PersistentString(buffer, buffer.length());
+				}
+			}
+		}
+		final StringBuilder copy = new StringBuilder(Math.max(16, (length + value.length()) * 2));
+		synchronized (buffer) {
+			copy.append(buffer, 0, length);
+		}
+		copy.append(value);
+		return new PersistentString(copy, copy.length());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int length() {
+		return length;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || length <= index) {
+			throw new StringIndexOutOfBoundsException(index);
+		}
+		synchronized (buffer) {
+			return buffer.charAt(index);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new StringIndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+		}
+		synchronized (buffer) {
+			return buffer.substring(start, end);
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof PersistentString))
+			return false;
+		final PersistentString other = (PersistentString) obj;
+		return length == other.length && toString().equals(other.toString());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		synchronized (buffer) {
+			return buffer.substring(0, length);
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package jp.que.ti.stream;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable vector with structural sharing: a 32-way trie of arrays plus a
+ * tail array. {@link #append(Object)} and {@link #set(int, Object)} copy at
+ * most one array per level of the trie, so "updating" it inside
+ * {@link StreamUtils#foldLeft} costs O(log32 n) instead of copying the whole
+ * accumulator.
+ *
+ * <pre>
+ * PersistentVector&lt;Integer&gt; v = StreamUtils.foldLeft(stream, PersistentVector.empty(), PersistentVector::append);
+ * </pre>
+ *
+ * @param <T>
+ *            the type of the elements
+ */
+public final class PersistentVector<T> implements Iterable<T> {
+
+	private static final int BITS = 5;
+	private static final int WIDTH = 1 << BITS;
+	private static final int MASK = WIDTH - 1;
+
+	private static final PersistentVector<?> EMPTY = new PersistentVector<Object>(0, BITS, new Object[WIDTH],
+			new Object[0]);
+
+	@SuppressWarnings("unchecked")
+	public static <T> PersistentVector<T> empty() {
+		return (PersistentVector<T>) EMPTY;
+	}
+
+	@SafeVarargs
+	public static <T> PersistentVector<T> of(T... values) {
+		PersistentVector<T> v = empty();
+		for (T t : values) {
+			v = v.append(t);
+		}
+		return v;
+	}
+
+	private final int size;
+	private final int shift;
+
+	/** trie の根(末尾の tail に入っていない要素) */
+	private final Object[] root;
+
+	/** 末尾の最大 32 要素 */
+	private final Object[] tail;
+
+	private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+		this.size = size;
+		this.shift = shift;
+		this.root = root;
+		this.tail = tail;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	private int tailOffset() {
+		return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+	}
+
+	/** index の要素を含む葉の配列 */
+	private Object[] leafFor(int index) {
+		if (index < 0 || size <= index) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+		}
+		if (index >= tailOffset()) {
+			return tail;
+		}
+		Object[] node = root;
+		for (int level = shift; level > 0; level -= BITS) {
+			node = (Object[]) node[(index >>> level) & MASK];
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the element at {@code index}.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code index} is out of range
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		return (T) leafFor(index)[index & MASK];
+	}
+
+	/**
+	 * Returns a vector with {@code value} added at the end.
+	 */
+	public PersistentVector<T> append(T value) {
+		if (size - tailOffset() < WIDTH) {
+			final Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+			newTail[tail.length] = value;
+			return new PersistentVector<T>(size + 1, shift, root, newTail);
+		}
+
+		final Object[] newRoot;
+		int newShift = shift;
+		if ((size >>> BITS) > (1 << shift)) {
+			// 根が一杯なので 1 段深くする
+			newRoot = new Object[WIDTH];
+			newRoot[0] = root;
+			newRoot[1] = newPath(shift, tail);
+			newShift += BITS;
+		} else {
+			newRoot = pushTail(shift, root, tail);
+		}
+		return new PersistentVector<T>(size + 1, newShift, newRoot, new Object[] { value });
+	}
+
+	private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+		final int sub = ((size - 1) >>> level) & MASK;
+		final Object[] node = parent.clone();
+		if (level == BITS) {
+			node[sub] = tailNode;
+		} else {
+			final Object[] child = (Object[]) parent[sub];
+			node[sub] = child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+		}
+		return node;
+	}
+
+	private static Object[] newPath(int level, Object[] node) {
+		if (level == 0) {
+			return node;
+		}
+		final Object[] path = new Object[WIDTH];
+		path[0] = newPath(level - BITS, node);
+		return path;
+	}
+
+	/**
+	 * Returns a vector with the element at {@code index} replaced by
+	 * {@code value}. {@code index == size()} appends.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             if {@code index} is out of range
+	 */
+	public PersistentVector<T> set(int index, T value) {
+		if (index == size) {
+			return append(value);
+		}
+		if (index < 0 || size < index) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+		}
+		if (index >= tailOffset()) {
+			final Object[] newTail = tail.clone();
+			newTail[index & MASK] = value;
+			return new PersistentVector<T>(size, shift, root, newTail);
+		}
+		return new PersistentVector<T>(size, shift, set(shift, root, index, value), tail);
+	}
+
+	private static Object[] set(int level, Object[] node, int index, Object value) {
+		final Object[] copy = node.clone();
+		if (level == 0) {
+			copy[index & MASK] = value;
+		} else {
+			final int sub = (index >>> level) & MASK;
+			copy[sub] = set(level - BITS, (Object[]) node[sub], index, value);
+		}
+		return copy;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private int index = 0;
+			private Object[] leaf;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+				if ((index & MASK) == 0 || leaf == null) {
+					leaf = leafFor(index);
+				}
+				return (T) leaf[index++ & MASK];
+			}
+		};
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<T> spliterator() {
+		return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.IMMUTABLE);
+	}
+
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 1;
+		for (T t : this) {
+			result = 31 * result + (t == null ? 0 : t.hashCode());
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof PersistentVector))
+			return false;
+		final PersistentVector<?> other = (PersistentVector<?>) obj;
+		if (size != other.size)
+			return false;
+		final Iterator<?> it = other.iterator();
+		for (T t : this) {
+			final Object o = it.next();
+			if (t == null ? o != null : !t.equals(o))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("PersistentVector[");
+		String sep = "";
+		for (T t : this) {
+			sb.append(sep).append(t);
+			sep = ", ";
+		}
+		return sb.append("]").toString();
+	}
+}
@@ -0,0 +1,27 @@
+package jp.que.ti.stream;
+
+/**
+ * Access to the cached value of an {@link Either.Right}. This Java 8 version
+ * uses plain reads and writes: a supplier may be evaluated more than once by
+ * racing threads. The multi-release JAR replaces it on Java 17 or later with
+ * a version using a {@code VarHandle} (src/main/java17).
+ */
+final class RightCache {
+	private RightCache() {
+	}
+
+	/** 格納された値(無ければ null) */
+	static Object get(Either.Right<?, ?> right) {
+		return right.rightcache;
+	}
+
+	/**
+	 * Stores {@code value} and returns the value to use, which is the value
+	 * already stored if there is one.
+	 */
+	@SuppressWarnings("unchecked")
+	static Object publish(Either.Right<?, ?> right, Object value) {
+		((Either.Right<?, Object>) right).rightcache = value;
+		return value;
+	}
+}
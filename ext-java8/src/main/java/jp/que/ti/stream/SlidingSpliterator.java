@@ -0,0 +1,117 @@
+package jp.que.ti.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} of fixed size windows over the source elements, the
+ * start of each window advancing by {@code step} elements. Only full windows
+ * are reported. The window contents are kept in a reused ring buffer, and each
+ * reported window is a pre-sized copy of it.
+ *
+ * <p>
+ * Windows overlap each other, so this spliterator does not split.
+ *
+ * @param <T>
+ *            the type of the source elements
+ */
+final class SlidingSpliterator<T> implements Spliterator<List<T>>, Consumer<T> {
+
+	private final Spliterator<T> source;
+	private final int size;
+	private final int step;
+
+	/** 現在のウィンドウ(リングバッファ) */
+	private final Object[] ring;
+	private int head = 0;
+	private int filled = 0;
+
+	/** tryAdvance で受け取った要素の一時置き場 */
+	private T current;
+
+	SlidingSpliterator(Spliterator<T> source, int size, int step) {
+		this.source = source;
+		this.size = size;
+		this.step = step;
+		this.ring = new Object[size];
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void accept(T t) {
+		current = t;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean tryAdvance(Consumer<? super List<T>> action) {
+		if (filled == size) {
+			slide();
+		}
+		while (filled < size && source.tryAdvance(this)) {
+			ring[(head + filled++) % size] = current;
+		}
+		current = null;
+		if (filled < size) {
+			return false;
+		}
+		action.accept(window());
+		return true;
+	}
+
+	/** ウィンドウの開始位置を step 要素ずらす */
+	private void slide() {
+		if (step < size) {
+			for (int i = 0; i < step; i++) {
+				ring[(head + i) % size] = null;
+			}
+			head = (head + step) % size;
+			filled -= step;
+			return;
+		}
+		Arrays.fill(ring, null);
+		head = 0;
+		filled = 0;
+		for (int skip = step - size; skip > 0 && source.tryAdvance(this); skip--) {
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<T> window() {
+		final List<T> window = new ArrayList<T>(size);
+		for (int i = 0; i < size; i++) {
+			window.add((T) ring[(head + i) % size]);
+		}
+		return window;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<List<T>> trySplit() {
+		return null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long estimateSize() {
+		final long elements = source.estimateSize();
+		if (elements == Long.MAX_VALUE) {
+			return Long.MAX_VALUE;
+		}
+		// 次のウィンドウの開始位置以降に残っている要素数
+		final long available = elements + filled - (filled == size ? step : 0);
+		if (available < size) {
+			return 0;
+		}
+		return (available - size) / step + 1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int characteristics() {
+		return (source.characteristics() & ORDERED) | NONNULL;
+	}
+}
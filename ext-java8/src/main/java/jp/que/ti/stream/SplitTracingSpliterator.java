@@ -0,0 +1,73 @@
+package jp.que.ti.stream;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} which reports each split of the source to an
+ * {@link Instrumentation.Tracer}, so that the parallel tasks of a fold show up
+ * in a trace.
+ *
+ * @param <T>
+ *            the type of the elements
+ */
+final class SplitTracingSpliterator<T> implements Spliterator<T> {
+
+	private final Spliterator<T> source;
+	private final String operation;
+	private final Instrumentation.Tracer tracer;
+
+	SplitTracingSpliterator(Spliterator<T> source, String operation, Instrumentation.Tracer tracer) {
+		this.source = source;
+		this.operation = operation;
+		this.tracer = tracer;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		return source.tryAdvance(action);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void forEachRemaining(Consumer<? super T> action) {
+		source.forEachRemaining(action);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<T> trySplit() {
+		final Spliterator<T> prefix = source.trySplit();
+		if (prefix == null) {
+			return null;
+		}
+		tracer.split(operation, prefix.estimateSize());
+		return new SplitTracingSpliterator<T>(prefix, operation, tracer);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long estimateSize() {
+		return source.estimateSize();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long getExactSizeIfKnown() {
+		return source.getExactSizeIfKnown();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int characteristics() {
+		return source.characteristics();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Comparator<? super T> getComparator() {
+		return source.getComparator();
+	}
+}
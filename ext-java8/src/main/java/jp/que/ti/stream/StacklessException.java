@@ -0,0 +1,21 @@
+package jp.que.ti.stream;
+
+/**
+ * A {@link RuntimeException} which does not fill in its stack trace nor keep
+ * suppressed exceptions, so that creating it costs about as much as a plain
+ * object. Extend it for the failures which are expected and frequent, for
+ * example validation errors reported as {@link Either.Left} by
+ * {@link Either#catching}, where the stack trace is not needed.
+ */
+public class StacklessException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public StacklessException(String message) {
+		super(message, null, false, false);
+	}
+
+	public StacklessException(String message, Throwable cause) {
+		super(message, cause, false, false);
+	}
+}
@@ -0,0 +1,182 @@
+package jp.que.ti.stream;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The default {@link StageSink}: keeps per stage in memory the element count,
+ * a histogram of the downstream time per element with power-of-two buckets,
+ * and the numbers of completed, closed and short-circuited runs.
+ *
+ * <pre>
+ * StreamUtils.instrument(stream, "parse").map(...).forEach(...);
+ * System.out.println(StageHistogram.shared().stats("parse"));
+ * </pre>
+ */
+public final class StageHistogram implements StageSink {
+
+	private static final StageHistogram SHARED = new StageHistogram();
+
+	/**
+	 * @return the sink used by {@link StreamUtils#instrument(java.util.stream.Stream, String)}
+	 */
+	public static StageHistogram shared() {
+		return SHARED;
+	}
+
+	/**
+	 * The measurements of a stage.
+	 */
+	public static final class Stats {
+		private final String stage;
+
+		/** buckets[i]: 下流の時間が [2^(i-1), 2^i) ns の要素数 */
+		private final LongAdder[] buckets = new LongAdder[Long.SIZE];
+		private final LongAdder elements = new LongAdder();
+		private final LongAdder downstreamNanos = new LongAdder();
+		private final LongAdder runElements = new LongAdder();
+		private final LongAdder runNanos = new LongAdder();
+		private final LongAdder completed = new LongAdder();
+		private final LongAdder closed = new LongAdder();
+		private final LongAdder shortCircuited = new LongAdder();
+
+		private Stats(String stage) {
+			this.stage = stage;
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+
+		public String stage() {
+			return stage;
+		}
+
+		/** @return the number of elements passed downstream */
+		public long count() {
+			return elements.sum();
+		}
+
+		/** @return the total time spent downstream */
+		public long downstreamNanos() {
+			return downstreamNanos.sum();
+		}
+
+		/**
+		 * Returns an upper bound of the {@code quantile} of the downstream
+		 * time per element, within a factor of 2.
+		 *
+		 * @param quantile
+		 *            between 0 and 1, for example 0.99
+		 * @return the time in nanoseconds, 0 if there is no element
+		 */
+		public long quantileNanos(double quantile) {
+			if (quantile < 0 || 1 < quantile) {
+				throw new IllegalArgumentException("parameter quantile must be in [0, 1] !! quantile=" + quantile);
+			}
+			final long[] counts = new long[buckets.length];
+			long total = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				counts[i] = buckets[i].sum();
+				total += counts[i];
+			}
+			final long rank = (long) Math.ceil(quantile * total);
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank && counts[i] > 0) {
+					return i == 0 ? 0 : i >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * @return the elements per second over the completed and closed runs,
+		 *         0 if none has finished
+		 */
+		public double throughputPerSecond() {
+			final long nanos = runNanos.sum();
+			return nanos == 0 ? 0 : runElements.sum() * 1e9 / nanos;
+		}
+
+		/** @return the number of runs which exhausted the source */
+		public long completedCount() {
+			return completed.sum();
+		}
+
+		/** @return the number of closes */
+		public long closedCount() {
+			return closed.sum();
+		}
+
+		/** @return the number of closes before the source was exhausted */
+		public long shortCircuitedCount() {
+			return shortCircuited.sum();
+		}
+
+		@Override
+		public String toString() {
+			return "Stats(" + stage + ", count: " + count() + ", downstream: " + downstreamNanos() + "ns, p50: "
+					+ quantileNanos(0.5) + "ns, p99: " + quantileNanos(0.99) + "ns, throughput: "
+					+ throughputPerSecond() + "/s, completed: " + completedCount() + ", closed: " + closedCount()
+					+ ", shortCircuited: " + shortCircuitedCount() + ")";
+		}
+	}
+
+	private final Map<String, Stats> stats = new ConcurrentHashMap<String, Stats>();
+
+	/**
+	 * Returns the measurements of {@code stage}, empty if it has not run.
+	 */
+	public Stats stats(String stage) {
+		// 要素ごとに呼ばれるので、ロックを取らない get を先に試す
+		// (Java 8 の computeIfAbsent はキーがあってもビンをロックする)
+		final Stats s = stats.get(stage);
+		return s != null ? s : stats.computeIfAbsent(stage, Stats::new);
+	}
+
+	/**
+	 * @return the measurements of all the stages which have run
+	 */
+	public Map<String, Stats> stats() {
+		return Collections.unmodifiableMap(stats);
+	}
+
+	/** Forgets all the measurements. */
+	public void clear() {
+		stats.clear();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void element(String stage, long downstreamNanos) {
+		final Stats s = stats(stage);
+		s.elements.increment();
+		s.downstreamNanos.add(downstreamNanos);
+		s.buckets[Long.SIZE - Long.numberOfLeadingZeros(Math.max(0, downstreamNanos))].increment();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void completed(String stage, long elements, long elapsedNanos) {
+		final Stats s = stats(stage);
+		s.completed.increment();
+		s.runElements.add(elements);
+		s.runNanos.add(elapsedNanos);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void closed(String stage, long elements, long elapsedNanos, boolean shortCircuited) {
+		final Stats s = stats(stage);
+		s.closed.increment();
+		if (shortCircuited) {
+			s.shortCircuited.increment();
+			// 完了していない実行はここで計る
+			s.runElements.add(elements);
+			s.runNanos.add(elapsedNanos);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package jp.que.ti.stream;
+
+/**
+ * Receives the measurements of a stream stage instrumented by
+ * {@link StreamUtils#instrument(java.util.stream.Stream, String, StageSink)}.
+ * The methods may be called from several threads at the same time when the
+ * stream is parallel.
+ *
+ * @see StageHistogram
+ */
+public interface StageSink {
+
+	/**
+	 * Called for each element passed downstream.
+	 *
+	 * @param stage
+	 *            the name of the stage
+	 * @param downstreamNanos
+	 *            the time spent downstream of the stage for the element
+	 */
+	void element(String stage, long downstreamNanos);
+
+	/**
+	 * Called when the source of the stage is exhausted.
+	 *
+	 * @param stage
+	 *            the name of the stage
+	 * @param elements
+	 *            the number of elements passed downstream
+	 * @param elapsedNanos
+	 *            the time from the first element requested to the end
+	 */
+	void completed(String stage, long elements, long elapsedNanos);
+
+	/**
+	 * Called when the stream is closed.
+	 *
+	 * @param stage
+	 *            the name of the stage
+	 * @param elements
+	 *            the number of elements passed downstream
+	 * @param elapsedNanos
+	 *            the time from the first element requested to the close
+	 * @param shortCircuited
+	 *            {@code true} if the source was started but not exhausted,
+	 *            for example by {@code findFirst} or {@code limit}
+	 */
+	void closed(String stage, long elements, long elapsedNanos, boolean shortCircuited);
+}
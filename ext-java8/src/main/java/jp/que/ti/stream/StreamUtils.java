@@ -0,0 +1,1097 @@
+package jp.que.ti.stream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.BaseStream;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import jp.que.ti.stream.Param.Tuple;
+import jp.que.ti.stream.Param.Tuple3;
+import jp.que.ti.stream.Param.Tuple4;
+import jp.que.ti.stream.Param.Tuple5;
+
+public class StreamUtils {
+	private StreamUtils() {
+	}
+
+	public static <ACCUM, T> ACCUM foldLeft(BaseStream<T, ?> stream //
+			, ACCUM initAccumulator //
+			, BiFunction<ACCUM, T, ACCUM> op) {
+
+		if (Instrumentation.ENABLED && Instrumentation.TRACER != null) {
+			return foldLeftTraced(stream, initAccumulator, op, Instrumentation.TRACER);
+		}
+		ACCUM accum = initAccumulator;
+		final Iterator<T> it = stream.iterator();
+		while (it.hasNext()) {
+			final T t = it.next();
+			accum = op.apply(accum, t);
+		}
+		return accum;
+	}
+
+	/** foldLeft の進捗を Tracer に知らせる版 */
+	private static <ACCUM, T> ACCUM foldLeftTraced(BaseStream<T, ?> stream //
+			, ACCUM initAccumulator //
+			, BiFunction<ACCUM, T, ACCUM> op, Instrumentation.Tracer tracer) {
+
+		final Object span = tracer.begin(Instrumentation.FOLD_LEFT);
+		long count = 0;
+		try {
+			ACCUM accum = initAccumulator;
+			final Iterator<T> it = stream.iterator();
+			while (it.hasNext()) {
+				final T t = it.next();
+				accum = op.apply(accum, t);
+				if (++count % Instrumentation.PROGRESS_INTERVAL == 0) {
+					tracer.progress(span, count);
+				}
+			}
+			return accum;
+		} finally {
+			tracer.end(span, count);
+		}
+	}
+
+	/**
+	 * Same as {@link #foldLeft}, saving the number of elements consumed and
+	 * the accumulator to {@code checkpoint} periodically. When a checkpoint
+	 * exists, the fold resumes from it: its accumulator replaces
+	 * {@code initAccumulator} and the elements it has consumed are skipped.
+	 * The checkpoint is deleted when the fold completes.
+	 *
+	 * <p>
+	 * The source must produce the same elements in the same order on every
+	 * run, and {@code op} must not have side effects other than on the
+	 * accumulator, since the elements after the latest checkpoint are folded
+	 * again.
+	 *
+	 * @param stream
+	 *            the sequential source stream
+	 * @param initAccumulator
+	 *            the accumulator when there is no checkpoint
+	 * @param op
+	 *            folds an element into the accumulator
+	 * @param checkpoint
+	 *            where and how often to save the progress
+	 * @return the accumulator
+	 * @throws java.io.UncheckedIOException
+	 *             if the checkpoint cannot be read or written
+	 * @throws IllegalStateException
+	 *             if the stream is shorter than the checkpoint
+	 */
+	public static <ACCUM, T> ACCUM foldLeftResumable(BaseStream<T, ?> stream //
+			, ACCUM initAccumulator //
+			, BiFunction<ACCUM, T, ACCUM> op, FoldCheckpoint<ACCUM> checkpoint) {
+
+		final Option<Tuple<Long, ACCUM>> saved = checkpoint.load();
+		ACCUM accum = saved.isPresent() ? saved.value()._2 : initAccumulator;
+		long consumed = saved.isPresent() ? saved.value()._1 : 0;
+		final Iterator<T> it = stream.iterator();
+		// 保存済みの要素を読み飛ばす
+		for (long i = 0; i < consumed; i++) {
+			if (!it.hasNext()) {
+				throw new IllegalStateException("the stream is shorter than the checkpoint !! consumed=" + consumed
+						+ ", file=" + checkpoint.file());
+			}
+			it.next();
+		}
+		long lastSaved = System.nanoTime();
+		while (it.hasNext()) {
+			accum = op.apply(accum, it.next());
+			if (checkpoint.isDue(++consumed, lastSaved)) {
+				checkpoint.save(consumed, accum);
+				lastSaved = System.nanoTime();
+			}
+		}
+		checkpoint.delete();
+		return accum;
+	}
+
+	/**
+	 * Folds a stream into a mutable accumulator which {@code mutatingOp}
+	 * updates in place, so no accumulator is allocated per element. See
+	 * {@link MutableParam} for tuple and primitive accumulators.
+	 *
+	 * @param stream
+	 *            the source stream
+	 * @param accumulatorSupplier
+	 *            creates the accumulator
+	 * @param mutatingOp
+	 *            folds an element into the accumulator
+	 * @return the accumulator
+	 */
+	public static <ACCUM, T> ACCUM foldInto(BaseStream<T, ?> stream //
+			, Supplier<? extends ACCUM> accumulatorSupplier //
+			, BiConsumer<? super ACCUM, ? super T> mutatingOp) {
+
+		final ACCUM accum = accumulatorSupplier.get();
+		stream.spliterator().forEachRemaining(t -> mutatingOp.accept(accum, t));
+		return accum;
+	}
+
+	/**
+	 * Same as {@link #foldInto(BaseStream, Supplier, BiConsumer)}, then turns
+	 * the accumulator into the result with {@code finisher}, for example
+	 * {@code MutableTuple3::toTuple}.
+	 *
+	 * @see #foldInto(BaseStream, Supplier, BiConsumer)
+	 */
+	public static <ACCUM, T, R> R foldInto(BaseStream<T, ?> stream //
+			, Supplier<? extends ACCUM> accumulatorSupplier //
+			, BiConsumer<? super ACCUM, ? super T> mutatingOp //
+			, Function<? super ACCUM, ? extends R> finisher) {
+
+		return finisher.apply(foldInto(stream, accumulatorSupplier, mutatingOp));
+	}
+
+	/**
+	 * Returns a parallel stream over {@code iterator} which splits well
+	 * although the size is unknown: the elements are copied into arrays of
+	 * {@value BatchingSpliterator#INITIAL_BATCH} elements at first, growing by
+	 * as many at each split up to {@value BatchingSpliterator#MAX_BATCH}. Suitable
+	 * for cursors and readers whose elements need CPU-heavy work.
+	 *
+	 * @param iterator
+	 *            the source, read by one thread at a time
+	 * @return the parallel stream
+	 */
+	public static <T> Stream<T> batched(Iterator<? extends T> iterator) {
+		return batched(iterator, BatchingSpliterator.INITIAL_BATCH, BatchingSpliterator.MAX_BATCH);
+	}
+
+	/**
+	 * Same as {@link #batched(Iterator)} with the batch sizes given.
+	 *
+	 * @param iterator
+	 *            the source, read by one thread at a time
+	 * @param initialBatch
+	 *            the number of elements of the first split, and by which
+	 *            the following splits grow
+	 * @param maxBatch
+	 *            the maximum number of elements of a split
+	 * @return the parallel stream
+	 */
+	public static <T> Stream<T> batched(Iterator<? extends T> iterator, int initialBatch, int maxBatch) {
+		return StreamSupport.stream(new BatchingSpliterator<T>(iterator, initialBatch, maxBatch), true);
+	}
+
+	/**
+	 * Folds the elements of {@code iterator} in parallel, see
+	 * {@link #batched(Iterator)}. Each task folds its part from
+	 * {@code identity} with {@code op}, and the results of the parts are
+	 * merged in encounter order with {@code combiner}.
+	 *
+	 * @param iterator
+	 *            the source
+	 * @param identity
+	 *            the initial accumulator of each part, which
+	 *            {@code combiner} must not change a result with
+	 * @param op
+	 *            folds an element into the accumulator
+	 * @param combiner
+	 *            merges the accumulators of two adjacent parts
+	 * @return the accumulator
+	 */
+	public static <ACCUM, T> ACCUM foldLeftParallel(Iterator<? extends T> iterator //
+			, ACCUM identity //
+			, BiFunction<ACCUM, ? super T, ACCUM> op, BinaryOperator<ACCUM> combiner) {
+		return StreamUtils.<T> batched(iterator).reduce(identity, op, combiner);
+	}
+
+	/**
+	 * Collects the elements of {@code iterator} in parallel, see
+	 * {@link #batched(Iterator)}.
+	 *
+	 * @param iterator
+	 *            the source
+	 * @param collector
+	 *            the collector
+	 * @return the result of the collector
+	 */
+	public static <T, R> R collectParallel(Iterator<? extends T> iterator, Collector<? super T, ?, R> collector) {
+		return StreamUtils.<T> batched(iterator).collect(collector);
+	}
+
+	/**
+	 * Folds the elements of each key separately, like {@link #foldLeft} with
+	 * one accumulator per key. In a parallel stream every task folds into its
+	 * own {@link HashMap}, and the maps of the tasks are merged in encounter
+	 * order with {@code combiner}, so no lock is taken while folding.
+	 * {@code op} may return its (mutated) accumulator.
+	 *
+	 * <p>
+	 * This is the strategy of {@code Collectors.groupingBy} with a
+	 * {@code reducing} downstream too, so for immutable accumulators the two
+	 * cost about the same. What {@code foldByKey} saves is the allocation per
+	 * element when the accumulator is mutated in place, as
+	 * {@link #countByKey} and {@link #sumByKey} do (compared in
+	 * AllocationTest).
+	 *
+	 * @param stream
+	 *            the source stream
+	 * @param keyFn
+	 *            the key of an element
+	 * @param initSupplier
+	 *            creates the initial accumulator of a key
+	 * @param op
+	 *            folds an element into the accumulator of its key
+	 * @param combiner
+	 *            merges two accumulators of the same key (parallel only)
+	 * @return the accumulator of each key
+	 * @throws NullPointerException
+	 *             if {@code op} or {@code combiner} returns null
+	 * @see #tuples(Map)
+	 */
+	public static <T, K, ACCUM> Map<K, ACCUM> foldByKey(Stream<T> stream //
+			, Function<? super T, ? extends K> keyFn //
+			, Supplier<? extends ACCUM> initSupplier //
+			, BiFunction<ACCUM, ? super T, ACCUM> op //
+			, BinaryOperator<ACCUM> combiner) {
+
+		if (Instrumentation.ENABLED && Instrumentation.TRACER != null && stream.isParallel()) {
+			stream = StreamSupport.stream( //
+					new SplitTracingSpliterator<T>(stream.spliterator(), Instrumentation.FOLD_BY_KEY //
+							, Instrumentation.TRACER), true) //
+					.onClose(stream::close);
+		}
+		// 共有の ConcurrentHashMap(またはストライプ化したマップ)には集約しない。
+		// compute は要素ごとにビンをロックするので、偏ったキーではそこで競合し、
+		// 結合的でない op では要素の順序も守れない。タスクごとの HashMap に
+		// ロックなしで畳み込み、タスクの境界でだけ combiner で併合する
+		return stream.collect(HashMap<K, ACCUM>::new //
+				, (map, t) -> {
+					final K k = keyFn.apply(t);
+					final ACCUM accum = map.get(k);
+					final ACCUM next = op.apply(accum != null ? accum : initSupplier.get(), t);
+					if (next == null) {
+						// HashMap.merge は null でキーを消すので、分割の仕方で結果が変わらないように null は認めない
+						throw new NullPointerException("the op of foldByKey returned null !! key=" + k);
+					}
+					if (next != accum) {
+						map.put(k, next);
+					}
+				} //
+				, (left, right) -> {
+					for (Map.Entry<K, ACCUM> e : right.entrySet()) {
+						left.merge(e.getKey(), e.getValue(), (a, b) -> {
+							final ACCUM merged = combiner.apply(a, b);
+							if (merged == null) {
+								throw new NullPointerException(
+										"the combiner of foldByKey returned null !! key=" + e.getKey());
+							}
+							return merged;
+						});
+					}
+				});
+	}
+
+	/**
+	 * Counts the elements of each key. Counts are kept in mutable cells, so
+	 * nothing is boxed per element.
+	 *
+	 * @see #foldByKey(Stream, Function, Supplier, BiFunction, BinaryOperator)
+	 */
+	public static <T, K> Map<K, Long> countByKey(Stream<T> stream, Function<? super T, ? extends K> keyFn) {
+		return sumByKey(stream, keyFn, t -> 1L);
+	}
+
+	/**
+	 * Sums a {@code long} value of the elements of each key. Sums are kept in
+	 * mutable cells, so nothing is boxed per element.
+	 *
+	 * @see #foldByKey(Stream, Function, Supplier, BiFunction, BinaryOperator)
+	 */
+	public static <T, K> Map<K, Long> sumByKey(Stream<T> stream, Function<? super T, ? extends K> keyFn //
+			, ToLongFunction<? super T> valueFn) {
+
+		final HashMap<K, long[]> cells = stream.collect(HashMap<K, long[]>::new //
+				, (map, t) -> {
+					final K k = keyFn.apply(t);
+					long[] cell = map.get(k);
+					if (cell == null) {
+						cell = new long[1];
+						map.put(k, cell);
+					}
+					cell[0] += valueFn.applyAsLong(t);
+				} //
+				, (left, right) -> {
+					for (Map.Entry<K, long[]> e : right.entrySet()) {
+						final long[] cell = left.putIfAbsent(e.getKey(), e.getValue());
+						if (cell != null) {
+							cell[0] += e.getValue()[0];
+						}
+					}
+				});
+		final Map<K, Long> result = new HashMap<K, Long>(cells.size() * 4 / 3 + 1);
+		for (Map.Entry<K, long[]> e : cells.entrySet()) {
+			result.put(e.getKey(), e.getValue()[0]);
+		}
+		return result;
+	}
+
+	/**
+	 * Sums a {@code double} value of the elements of each key. Sums are kept
+	 * in mutable cells, so nothing is boxed per element.
+	 *
+	 * @see #foldByKey(Stream, Function, Supplier, BiFunction, BinaryOperator)
+	 */
+	public static <T, K> Map<K, Double> sumDoubleByKey(Stream<T> stream, Function<? super T, ? extends K> keyFn //
+			, ToDoubleFunction<? super T> valueFn) {
+
+		final HashMap<K, double[]> cells = stream.collect(HashMap<K, double[]>::new //
+				, (map, t) -> {
+					final K k = keyFn.apply(t);
+					double[] cell = map.get(k);
+					if (cell == null) {
+						cell = new double[1];
+						map.put(k, cell);
+					}
+					cell[0] += valueFn.applyAsDouble(t);
+				} //
+				, (left, right) -> {
+					for (Map.Entry<K, double[]> e : right.entrySet()) {
+						final double[] cell = left.putIfAbsent(e.getKey(), e.getValue());
+						if (cell != null) {
+							cell[0] += e.getValue()[0];
+						}
+					}
+				});
+		final Map<K, Double> result = new HashMap<K, Double>(cells.size() * 4 / 3 + 1);
+		for (Map.Entry<K, double[]> e : cells.entrySet()) {
+			result.put(e.getKey(), e.getValue()[0]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the entries of a map as a stream of {@link Tuple}.
+	 *
+	 * @param map
+	 *            the map
+	 * @return the stream of (key, value)
+	 */
+	public static <K, V> Stream<Tuple<K, V>> tuples(Map<K, V> map) {
+		return map.entrySet().stream().map(e -> Param.t2(e.getKey(), e.getValue()));
+	}
+
+	/**
+	 * Lazily zips two streams into a stream of {@link Tuple}. The result ends
+	 * with the shorter of the two streams. When both streams are
+	 * {@link Spliterator#SIZED SIZED}/{@link Spliterator#SUBSIZED SUBSIZED} and
+	 * have the same size, the result can be processed in parallel.
+	 *
+	 * @param streamA
+	 *            the stream for {@code _1}
+	 * @param streamB
+	 *            the stream for {@code _2}
+	 * @return the zipped stream
+	 */
+	@SuppressWarnings("unchecked")
+	public static <A, B> Stream<Tuple<A, B>> zip(Stream<A> streamA, Stream<B> streamB) {
+		return zip(values -> Param.t2((A) values[0], (B) values[1]) //
+				, streamA, streamB);
+	}
+
+	/**
+	 * Lazily zips three streams into a stream of {@link Tuple3}.
+	 *
+	 * @see #zip(Stream, Stream)
+	 */
+	@SuppressWarnings("unchecked")
+	public static <A, B, C> Stream<Tuple3<A, B, C>> zip(Stream<A> streamA, Stream<B> streamB, Stream<C> streamC) {
+		return zip(values -> Param.t3((A) values[0], (B) values[1], (C) values[2]) //
+				, streamA, streamB, streamC);
+	}
+
+	/**
+	 * Lazily zips four streams into a stream of {@link Tuple4}.
+	 *
+	 * @see #zip(Stream, Stream)
+	 */
+	@SuppressWarnings("unchecked")
+	public static <A, B, C, D> Stream<Tuple4<A, B, C, D>> zip(Stream<A> streamA, Stream<B> streamB //
+			, Stream<C> streamC, Stream<D> streamD) {
+		return zip(values -> Param.t4((A) values[0], (B) values[1], (C) values[2], (D) values[3]) //
+				, streamA, streamB, streamC, streamD);
+	}
+
+	/**
+	 * Lazily zips five streams into a stream of {@link Tuple5}.
+	 *
+	 * @see #zip(Stream, Stream)
+	 */
+	@SuppressWarnings("unchecked")
+	public static <A, B, C, D, E> Stream<Tuple5<A, B, C, D, E>> zip(Stream<A> streamA, Stream<B> streamB //
+			, Stream<C> streamC, Stream<D> streamD, Stream<E> streamE) {
+		return zip(values -> Param.t5((A) values[0], (B) values[1], (C) values[2], (D) values[3], (E) values[4]) //
+				, streamA, streamB, streamC, streamD, streamE);
+	}
+
+	private static <R> Stream<R> zip(Function<Object[], R> combiner, Stream<?>... streams) {
+		final Spliterator<?>[] sources = new Spliterator<?>[streams.length];
+		boolean parallel = false;
+		for (int i = 0; i < streams.length; i++) {
+			sources[i] = streams[i].spliterator();
+			parallel |= streams[i].isParallel();
+		}
+		return StreamSupport.stream(new ZipSpliterator<R>(sources, combiner), parallel) //
+				.onClose(() -> closeAll(streams));
+	}
+
+	private static void closeAll(BaseStream<?, ?>[] streams) {
+		RuntimeException exception = null;
+		for (BaseStream<?, ?> s : streams) {
+			try {
+				s.close();
+			} catch (RuntimeException e) {
+				if (exception == null) {
+					exception = e;
+				} else {
+					exception.addSuppressed(e);
+				}
+			}
+		}
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	/**
+	 * Lazily chunks a stream into lists of {@code size} elements. Only the last
+	 * list may be smaller. In parallel mode the stream is split on chunk
+	 * boundaries.
+	 *
+	 * @param stream
+	 *            the source stream
+	 * @param size
+	 *            the number of elements per chunk
+	 * @return the stream of chunks
+	 */
+	public static <T> Stream<List<T>> grouped(Stream<T> stream, int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("parameter size must be positive !! size=" + size);
+		}
+		return StreamSupport.stream(new GroupedSpliterator<T>(stream.spliterator(), size), stream.isParallel()) //
+				.onClose(stream::close);
+	}
+
+	/**
+	 * Lazily slides a window of {@code size} elements over a stream, moving it
+	 * by {@code step} elements each time. Only full windows are reported, so a
+	 * stream shorter than {@code size} results in an empty stream. The result
+	 * is processed sequentially.
+	 *
+	 * @param stream
+	 *            the source stream
+	 * @param size
+	 *            the number of elements per window
+	 * @param step
+	 *            the distance between the start of two windows
+	 * @return the stream of windows
+	 */
+	public static <T> Stream<List<T>> sliding(Stream<T> stream, int size, int step) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("parameter size must be positive !! size=" + size);
+		}
+		if (step <= 0) {
+			throw new IllegalArgumentException("parameter step must be positive !! step=" + step);
+		}
+		return StreamSupport.stream(new SlidingSpliterator<T>(stream.spliterator(), size, step), false) //
+				.onClose(stream::close);
+	}
+
+	/**
+	 * Inner joins two streams with an in-memory hash join. The hash table is
+	 * built from the smaller stream when the sizes of both streams are known,
+	 * and from {@code right} otherwise. The other stream is probed lazily, and
+	 * the result follows its order and parallelism.
+	 *
+	 * @param left
+	 *            the stream for {@code _1}
+	 * @param right
+	 *            the stream for {@code _2}
+	 * @param leftKey
+	 *            the join key of a left element
+	 * @param rightKey
+	 *            the join key of a right element
+	 * @return the stream of the matched pairs
+	 */
+	public static <A, B, K> Stream<Tuple<A, B>> hashJoin(Stream<A> left, Stream<B> right //
+			, Function<? super A, ? extends K> leftKey //
+			, Function<? super B, ? extends K> rightKey) {
+
+		final Spliterator<A> ls = left.spliterator();
+		final Spliterator<B> rs = right.spliterator();
+		final long leftSize = ls.getExactSizeIfKnown();
+		final long rightSize = rs.getExactSizeIfKnown();
+
+		final Spliterator<Tuple<A, B>> joined;
+		final boolean parallel;
+		if (leftSize >= 0 && rightSize >= 0 && leftSize < rightSize) {
+			joined = new HashJoinSpliterator<B, A, Tuple<A, B>>(rs, rightKey, ls, leftKey //
+					, (b, a) -> Param.t2(a, b), null, null);
+			parallel = right.isParallel();
+		} else {
+			joined = new HashJoinSpliterator<A, B, Tuple<A, B>>(ls, leftKey, rs, rightKey //
+					, Param::t2, null, null);
+			parallel = left.isParallel();
+		}
+		return StreamSupport.stream(joined, parallel) //
+				.onClose(() -> closeAll(new Stream<?>[] { left, right }));
+	}
+
+	/**
+	 * Left outer joins two streams with an in-memory hash join. The hash table
+	 * is built from {@code right}, and {@code left} is probed lazily.
+	 *
+	 * @see #hashJoin(Stream, Stream, Function, Function)
+	 */
+	public static <A, B, K> Stream<Tuple<A, Option<B>>> hashLeftJoin(Stream<A> left, Stream<B> right //
+			, Function<? super A, ? extends K> leftKey //
+			, Function<? super B, ? extends K> rightKey) {
+
+		final Spliterator<Tuple<A, Option<B>>> joined = new HashJoinSpliterator<A, B, Tuple<A, Option<B>>>( //
+				left.spliterator(), leftKey, right.spliterator(), rightKey //
+				, (a, b) -> Param.t2(a, Option.of(b)) //
+				, a -> Param.t2(a, Option.empty()) //
+				, null);
+		return StreamSupport.stream(joined, left.isParallel()) //
+				.onClose(() -> closeAll(new Stream<?>[] { left, right }));
+	}
+
+	/**
+	 * Full outer joins two streams with an in-memory hash join. The hash table
+	 * is built from {@code right}, and {@code left} is probed lazily. The right
+	 * elements without a match come last. The result is sequential.
+	 *
+	 * @see #hashJoin(Stream, Stream, Function, Function)
+	 */
+	public static <A, B, K> Stream<Tuple<Option<A>, Option<B>>> hashOuterJoin(Stream<A> left, Stream<B> right //
+			, Function<? super A, ? extends K> leftKey //
+			, Function<? super B, ? extends K> rightKey) {
+
+		final Spliterator<Tuple<Option<A>, Option<B>>> joined = new HashJoinSpliterator<A, B, Tuple<Option<A>, Option<B>>>( //
+				left.spliterator(), leftKey, right.spliterator(), rightKey //
+				, (a, b) -> Param.t2(Option.of(a), Option.of(b)) //
+				, a -> Param.t2(Option.of(a), Option.empty()) //
+				, b -> Param.t2(Option.empty(), Option.of(b)));
+		return StreamSupport.stream(joined, false) //
+				.onClose(() -> closeAll(new Stream<?>[] { left, right }));
+	}
+
+	/**
+	 * Inner joins two streams which are both sorted by key with
+	 * {@code comparator}. Both streams are walked once, and only the right
+	 * elements sharing the current key are buffered. The result is sequential.
+	 *
+	 * @param left
+	 *            the stream for {@code _1}, sorted by {@code leftKey}
+	 * @param right
+	 *            the stream for {@code _2}, sorted by {@code rightKey}
+	 * @param leftKey
+	 *            the join key of a left element
+	 * @param rightKey
+	 *            the join key of a right element
+	 * @param comparator
+	 *            the order of the keys
+	 * @return the stream of the matched pairs
+	 * @throws IllegalStateException
+	 *             (on traversal) if a stream is not sorted by key
+	 */
+	public static <A, B, K> Stream<Tuple<A, B>> mergeJoin(Stream<A> left, Stream<B> right //
+			, Function<? super A, ? extends K> leftKey //
+			, Function<? super B, ? extends K> rightKey //
+			, Comparator<? super K> comparator) {
+
+		final Spliterator<Tuple<A, B>> joined = new MergeJoinSpliterator<A, B, K, Tuple<A, B>>( //
+				left.spliterator(), leftKey, right.spliterator(), rightKey, comparator //
+				, Param::t2, null, null);
+		return StreamSupport.stream(joined, false) //
+				.onClose(() -> closeAll(new Stream<?>[] { left, right }));
+	}
+
+	/**
+	 * Left outer joins two streams which are both sorted by key.
+	 *
+	 * @see #mergeJoin(Stream, Stream, Function, Function, Comparator)
+	 */
+	public static <A, B, K> Stream<Tuple<A, Option<B>>> mergeLeftJoin(Stream<A> left, Stream<B> right //
+			, Function<? super A, ? extends K> leftKey //
+			, Function<? super B, ? extends K> rightKey //
+			, Comparator<? super K> comparator) {
+
+		final Spliterator<Tuple<A, Option<B>>> joined = new MergeJoinSpliterator<A, B, K, Tuple<A, Option<B>>>( //
+				left.spliterator(), leftKey, right.spliterator(), rightKey, comparator //
+				, (a, b) -> Param.t2(a, Option.of(b)) //
+				, a -> Param.t2(a, Option.empty()) //
+				, null);
+		return StreamSupport.stream(joined, false) //
+				.onClose(() -> closeAll(new Stream<?>[] { left, right }));
+	}
+
+	/**
+	 * Full outer joins two streams which are both sorted by key. The result is
+	 * sorted by key as well.
+	 *
+	 * @see #mergeJoin(Stream, Stream, Function, Function, Comparator)
+	 */
+	public static <A, B, K> Stream<Tuple<Option<A>, Option<B>>> mergeOuterJoin(Stream<A> left, Stream<B> right //
+			, Function<? super A, ? extends K> leftKey //
+			, Function<? super B, ? extends K> rightKey //
+			, Comparator<? super K> comparator) {
+
+		final Spliterator<Tuple<Option<A>, Option<B>>> joined = new MergeJoinSpliterator<A, B, K, Tuple<Option<A>, Option<B>>>( //
+				left.spliterator(), leftKey, right.spliterator(), rightKey, comparator //
+				, (a, b) -> Param.t2(Option.of(a), Option.of(b)) //
+				, a -> Param.t2(Option.of(a), Option.empty()) //
+				, b -> Param.t2(Option.empty(), Option.of(b)));
+		return StreamSupport.stream(joined, false) //
+				.onClose(() -> closeAll(new Stream<?>[] { left, right }));
+	}
+
+	/**
+	 * Starts a lazy for-comprehension over streams with {@code streamA} as the
+	 * outermost generator.
+	 *
+	 * @param streamA
+	 *            the outermost generator
+	 * @return the for-comprehension
+	 * @see ForStream
+	 */
+	public static <A> ForStream.Gen1<A> forStream(Stream<A> streamA) {
+		return ForStream.of(streamA);
+	}
+
+	/**
+	 * Lazily drops the elements already seen, remembering them in a Bloom
+	 * filter instead of a {@code HashSet}. Memory is bounded by
+	 * {@code expectedInsertions} and {@code fpp}, at the price of dropping an
+	 * unseen element with the probability {@code fpp} (higher once more than
+	 * {@code expectedInsertions} distinct elements have passed).
+	 *
+	 * <p>
+	 * The elements are hashed from {@link Object#hashCode()}, so elements with
+	 * the same hash code are regarded as equal: of "Aa" and "BB", only the
+	 * first is kept, whatever {@code fpp} is. Use
+	 * {@link #distinctApprox(Stream, long, double, ToLongFunction)} with a
+	 * 64-bit hash when that matters.
+	 *
+	 * @param stream
+	 *            the source stream
+	 * @param expectedInsertions
+	 *            the expected number of distinct elements
+	 * @param fpp
+	 *            the false positive probability (0 &lt; fpp &lt; 1)
+	 * @return the stream of the elements seen for the first time
+	 */
+	public static <T> Stream<T> distinctApprox(Stream<T> stream, long expectedInsertions, double fpp) {
+		return distinctApprox(stream, expectedInsertions, fpp, Hashing::hash64);
+	}
+
+	/**
+	 * Same as {@link #distinctApprox(Stream, long, double)} with the elements
+	 * hashed by {@code hasher}. Elements with the same hash are regarded as
+	 * equal, so the hash should use all the 64 bits.
+	 *
+	 * @param stream
+	 *            the source stream
+	 * @param expectedInsertions
+	 *            the expected number of distinct elements
+	 * @param fpp
+	 *            the false positive probability (0 &lt; fpp &lt; 1)
+	 * @param hasher
+	 *            the 64-bit hash of an element
+	 * @return the stream of the elements seen for the first time
+	 */
+	public static <T> Stream<T> distinctApprox(Stream<T> stream, long expectedInsertions, double fpp,
+			ToLongFunction<? super T> hasher) {
+		final BloomFilter filter = new BloomFilter(expectedInsertions, fpp);
+		return stream.filter(t -> filter.put(hasher.applyAsLong(t)));
+	}
+
+	/**
+	 * Returns a stream of the lines of {@code file} parsed by {@code parser},
+	 * reading the file through memory-mapped windows instead of a
+	 * {@code BufferedReader}. The stream can be made parallel: the file is
+	 * split on line boundaries.
+	 *
+	 * <p>
+	 * Each line, without its {@code \n} or {@code \r\n}, is passed to the
+	 * parser as the bytes between the position and the limit of a read-only
+	 * {@link ByteBuffer}. The buffer is reused for the next line, so the
+	 * parser must not keep it. A {@link ParseError} returned or an exception
+	 * thrown by the parser is reported as a {@code Left} with the byte offset
+	 * of the line.
+	 *
+	 * <pre>
+	 * try (Stream&lt;Either&lt;ParseError, Access&gt;&gt; s = mappedLines(path, Access::parse)) {
+	 * 	s.parallel().filter(e -&gt; !e.isLeft())...
+	 * }
+	 * </pre>
+	 *
+	 * @param file
+	 *            the file to read
+	 * @param parser
+	 *            parses a line
+	 * @return the stream of the parsed lines, which must be closed to close
+	 *         the file
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 * @throws java.io.UncheckedIOException
+	 *             (on traversal) if the file cannot be mapped
+	 */
+	public static <T> Stream<Either<ParseError, T>> mappedLines(Path file //
+			, Function<? super ByteBuffer, ? extends Either<ParseError, ? extends T>> parser) throws IOException {
+		return mappedLines(file, parser, MappedLineSpliterator.MAX_WINDOW);
+	}
+
+	/** windowSize を指定する版(テストで窓の境界を跨がせるため) */
+	static <T> Stream<Either<ParseError, T>> mappedLines(Path file //
+			, Function<? super ByteBuffer, ? extends Either<ParseError, ? extends T>> parser, int windowSize)
+			throws IOException {
+		final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return StreamSupport.stream(new MappedLineSpliterator<T>(channel, 0, channel.size(), parser, windowSize) //
+					, false).onClose(() -> {
+						try {
+							channel.close();
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					});
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Same as {@link #mappedLines(Path, Function)} but each line is decoded
+	 * with {@code charset} into a {@link CharSequence}. The characters are
+	 * decoded into a buffer reused for the next line, so no {@code String} is
+	 * created per line and the parser must not keep the {@code CharSequence}.
+	 *
+	 * @see #mappedLines(Path, Function)
+	 */
+	public static <T> Stream<Either<ParseError, T>> mappedLines(Path file, Charset charset //
+			, Function<? super CharSequence, ? extends Either<ParseError, ? extends T>> parser) throws IOException {
+		// 並列で読むのでスレッドごとにデコーダと CharBuffer を持つ
+		final ThreadLocal<LineDecoder> decoders = ThreadLocal.withInitial(() -> new LineDecoder(charset));
+		return mappedLines(file, (ByteBuffer bytes) -> {
+			final CharSequence chars = decoders.get().decode(bytes);
+			return chars == null ? Either.<ParseError, T> left(ParseError.of("malformed " + charset))
+					: parser.apply(chars);
+		});
+	}
+
+	/** 行を再利用する CharBuffer にデコードする */
+	private static final class LineDecoder {
+		private final CharsetDecoder decoder;
+		private CharBuffer chars = CharBuffer.allocate(256);
+
+		LineDecoder(Charset charset) {
+			this.decoder = charset.newDecoder() //
+					.onMalformedInput(CodingErrorAction.REPORT) //
+					.onUnmappableCharacter(CodingErrorAction.REPORT);
+		}
+
+		/** デコードできなければ null */
+		CharSequence decode(ByteBuffer bytes) {
+			final int maxChars = (int) Math.ceil(bytes.remaining() * (double) decoder.maxCharsPerByte());
+			if (chars.capacity() < maxChars) {
+				chars = CharBuffer.allocate(Math.max(maxChars, chars.capacity() * 2));
+			}
+			chars.clear();
+			decoder.reset();
+			if (decoder.decode(bytes, chars, true).isError() || decoder.flush(chars).isError()) {
+				return null;
+			}
+			chars.flip();
+			return chars;
+		}
+	}
+
+	/**
+	 * Lazily sorts a stream which may not fit in the heap. The stream is read
+	 * in runs of {@code maxInMemory} elements; each run is sorted and spilled
+	 * to a temporary file encoded with {@code codec}, and the sorted stream is
+	 * produced by a k-way merge of the runs, opening at most
+	 * {@value ExternalSortSpliterator#FAN_IN} files at once (more runs are
+	 * merged in several passes). The sort is stable. The temporary files are
+	 * deleted once merged, or when the returned stream is closed.
+	 *
+	 * @param stream
+	 *            the source stream
+	 * @param comparator
+	 *            the order of the elements
+	 * @param codec
+	 *            the encoding of the spilled elements
+	 * @param maxInMemory
+	 *            the maximum number of elements sorted on the heap at once
+	 * @return the sorted stream (sequential)
+	 * @throws java.io.UncheckedIOException
+	 *             (on traversal) if a temporary file cannot be written or read
+	 */
+	public static <T> Stream<T> externalSort(Stream<T> stream, Comparator<? super T> comparator //
+			, Codec<T> codec, int maxInMemory) {
+		if (maxInMemory <= 0) {
+			throw new IllegalArgumentException("parameter maxInMemory must be positive !! maxInMemory=" + maxInMemory);
+		}
+		final ExternalSortSpliterator<T> sorted = new ExternalSortSpliterator<T>(stream.spliterator(), comparator //
+				, codec, maxInMemory);
+		return StreamSupport.stream(sorted, false) //
+				.onClose(sorted::close) //
+				.onClose(stream::close);
+	}
+
+	/**
+	 * Lazily maps each element with an asynchronous call, keeping at most
+	 * {@code parallelism} calls in flight. The results keep the order of the
+	 * source elements. A failed call is reported as {@link Either.Left} and
+	 * does not abort the stream. Closing the returned stream cancels the calls
+	 * still in flight.
+	 *
+	 * @param stream
+	 *            the source stream
+	 * @param parallelism
+	 *            the maximum number of calls in flight
+	 * @param mapper
+	 *            starts the call for an element
+	 * @return the sequential stream of results
+	 */
+	public static <T, R> Stream<Either<Throwable, R>> mapAsync(Stream<T> stream, int parallelism //
+			, Function<? super T, ? extends CompletableFuture<? extends R>> mapper) {
+		return mapAsync(stream, parallelism, mapper, true);
+	}
+
+	/**
+	 * Same as {@link #mapAsync(Stream, int, Function)} but the results are
+	 * reported in the order the calls complete.
+	 *
+	 * @see #mapAsync(Stream, int, Function)
+	 */
+	public static <T, R> Stream<Either<Throwable, R>> mapAsyncUnordered(Stream<T> stream, int parallelism //
+			, Function<? super T, ? extends CompletableFuture<? extends R>> mapper) {
+		return mapAsync(stream, parallelism, mapper, false);
+	}
+
+	/**
+	 * Same as {@link #mapAsync(Stream, int, Function)} for a blocking
+	 * {@code mapper}: each call runs on a shared executor, which uses virtual
+	 * threads on Java 21 or later and a cached pool of daemon threads
+	 * otherwise.
+	 *
+	 * @see #mapAsync(Stream, int, Function)
+	 */
+	public static <T, R> Stream<Either<Throwable, R>> mapAsyncBlocking(Stream<T> stream, int parallelism //
+			, Function<? super T, ? extends R> mapper) {
+		final Executor executor = AsyncExecutors.blocking();
+		return mapAsync(stream, parallelism, t -> CompletableFuture.supplyAsync(() -> mapper.apply(t), executor), true);
+	}
+
+	private static <T, R> Stream<Either<Throwable, R>> mapAsync(Stream<T> stream, int parallelism //
+			, Function<? super T, ? extends CompletableFuture<? extends R>> mapper, boolean ordered) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("parameter parallelism must be positive !! parallelism=" + parallelism);
+		}
+		final MapAsyncSpliterator<T, R> async = new MapAsyncSpliterator<T, R>(stream.spliterator(), parallelism //
+				, mapper, ordered);
+		return StreamSupport.stream(async, false) //
+				.onClose(async::close) //
+				.onClose(stream::close);
+	}
+
+	/**
+	 * Measures a stage of a pipeline: the elements passed downstream, the time
+	 * spent downstream per element, the throughput, and whether the stream was
+	 * exhausted or short-circuited and closed. The measurements go to
+	 * {@link StageHistogram#shared()}.
+	 *
+	 * <pre>
+	 * instrument(lines, "read").map(parse).forEach(store);
+	 * StageHistogram.shared().stats("read").quantileNanos(0.99); // parse + store
+	 * </pre>
+	 *
+	 * @param stream
+	 *            the source stream
+	 * @param stage
+	 *            the name of the stage
+	 * @return the same elements as {@code stream}
+	 */
+	public static <T> Stream<T> instrument(Stream<T> stream, String stage) {
+		return instrument(stream, stage, StageHistogram.shared());
+	}
+
+	/**
+	 * Same as {@link #instrument(Stream, String)} but the measurements go to
+	 * {@code sink}.
+	 *
+	 * @see #instrument(Stream, String)
+	 */
+	public static <T> Stream<T> instrument(Stream<T> stream, String stage, StageSink sink) {
+		final InstrumentedSpliterator.Run run = new InstrumentedSpliterator.Run(stage, sink);
+		return StreamSupport.stream(new InstrumentedSpliterator<T>(stream.spliterator(), run), stream.isParallel()) //
+				.onClose(run::close) //
+				.onClose(stream::close);
+	}
+
+	/**
+	 * Hands the {@link Either.Left}s of {@code stream} to {@code tee}, which
+	 * consumes them in batches on its background thread, and passes the
+	 * values of the {@link Either.Right}s downstream. The pipeline only waits
+	 * for the tee when its queue is full and its policy is
+	 * {@link LeftTee.Overflow#BLOCK}. Closing the returned stream waits until
+	 * the Lefts queued so far are consumed; closing {@code tee} is left to the
+	 * caller, so that it can be shared by several streams.
+	 *
+	 * @param stream
+	 *            the source stream
+	 * @param tee
+	 *            the consumer of the Lefts
+	 * @return the values of the Rights
+	 */
+	public static <L, R> Stream<R> teeLefts(Stream<? extends Either<? extends L, ? extends R>> stream //
+			, LeftTee<L> tee) {
+		return stream.filter(e -> {
+			if (e.isLeft()) {
+				tee.accept(e.getLeftOrNoSuchElementException());
+				return false;
+			}
+			return true;
+		}).<R> map(Either::getOrNoSuchElementException) //
+				.onClose(tee::flush);
+	}
+
+	/**
+	 * Returns a {@link Collector} which splits a stream of {@link Tuple} into
+	 * two downstream collectors in a single pass.
+	 *
+	 * @param downstreamA
+	 *            the collector for {@code _1}
+	 * @param downstreamB
+	 *            the collector for {@code _2}
+	 * @return the collector which results in a tuple of both results
+	 */
+	@SuppressWarnings("unchecked")
+	public static <A, B, RA, RB> Collector<Tuple<A, B>, ?, Tuple<RA, RB>> unzip( //
+			Collector<? super A, ?, RA> downstreamA //
+			, Collector<? super B, ?, RB> downstreamB) {
+
+		return unzip((Object[] results) -> Param.t2((RA) results[0], (RB) results[1]) //
+				, (Tuple<A, B> t, Object[] values) -> {
+					values[0] = t._1;
+					values[1] = t._2;
+				}, downstreamA, downstreamB);
+	}
+
+	/**
+	 * Returns a {@link Collector} which splits a stream of {@link Tuple3} into
+	 * three downstream collectors in a single pass.
+	 *
+	 * @see #unzip(Collector, Collector)
+	 */
+	@SuppressWarnings("unchecked")
+	public static <A, B, C, RA, RB, RC> Collector<Tuple3<A, B, C>, ?, Tuple3<RA, RB, RC>> unzip( //
+			Collector<? super A, ?, RA> downstreamA //
+			, Collector<? super B, ?, RB> downstreamB //
+			, Collector<? super C, ?, RC> downstreamC) {
+
+		return unzip((Object[] results) -> Param.t3((RA) results[0], (RB) results[1], (RC) results[2]) //
+				, (Tuple3<A, B, C> t, Object[] values) -> {
+					values[0] = t._1;
+					values[1] = t._2;
+					values[2] = t._3;
+				}, downstreamA, downstreamB, downstreamC);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <T, R> Collector<T, ?, R> unzip(Function<Object[], R> finisher //
+			, BiConsumer<T, Object[]> splitter //
+			, Collector<?, ?, ?>... downstreams) {
+
+		final int n = downstreams.length;
+		final Supplier[] suppliers = new Supplier[n];
+		final BiConsumer[] accumulators = new BiConsumer[n];
+		final BinaryOperator[] combiners = new BinaryOperator[n];
+		final Function[] finishers = new Function[n];
+		boolean unordered = true;
+		for (int i = 0; i < n; i++) {
+			suppliers[i] = downstreams[i].supplier();
+			accumulators[i] = downstreams[i].accumulator();
+			combiners[i] = downstreams[i].combiner();
+			finishers[i] = downstreams[i].finisher();
+			unordered &= downstreams[i].characteristics().contains(Collector.Characteristics.UNORDERED);
+		}
+
+		final Supplier<UnzipContainer> supplier = () -> {
+			final UnzipContainer c = new UnzipContainer(n);
+			for (int i = 0; i < n; i++) {
+				c.containers[i] = suppliers[i].get();
+			}
+			return c;
+		};
+		final BiConsumer<UnzipContainer, T> accumulator = (c, t) -> {
+			splitter.accept(t, c.values);
+			for (int i = 0; i < n; i++) {
+				accumulators[i].accept(c.containers[i], c.values[i]);
+			}
+		};
+		final BinaryOperator<UnzipContainer> combiner = (left, right) -> {
+			for (int i = 0; i < n; i++) {
+				left.containers[i] = combiners[i].apply(left.containers[i], right.containers[i]);
+			}
+			return left;
+		};
+		final Function<UnzipContainer, R> fin = c -> {
+			final Object[] results = new Object[n];
+			for (int i = 0; i < n; i++) {
+				results[i] = finishers[i].apply(c.containers[i]);
+			}
+			return finisher.apply(results);
+		};
+
+		return unordered //
+				? Collector.of(supplier, accumulator, combiner, fin, Collector.Characteristics.UNORDERED) //
+				: Collector.of(supplier, accumulator, combiner, fin);
+	}
+
+	/** unzip の中間コンテナ */
+	private static final class UnzipContainer {
+		final Object[] containers;
+
+		/** splitter に渡す作業領域(要素毎に再利用する) */
+		final Object[] values;
+
+		UnzipContainer(int n) {
+			containers = new Object[n];
+			values = new Object[n];
+		}
+	}
+
+}
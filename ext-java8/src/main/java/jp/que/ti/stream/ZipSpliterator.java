@@ -0,0 +1,208 @@
+package jp.que.ti.stream;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A {@link Spliterator} which walks several source spliterators in lock step
+ * and combines one element of each into a single element.
+ *
+ * <p>
+ * The traversal stops as soon as one of the sources is exhausted. When all the
+ * sources are {@link Spliterator#SIZED SIZED} and {@link Spliterator#SUBSIZED
+ * SUBSIZED} and have the same size, {@link #trySplit()} splits every source at
+ * the same index so that the zip can be run in parallel. A source which splits
+ * at another index is realigned by copying at most
+ * {@value #MAX_BUFFERED} elements; beyond that the zip is not split.
+ *
+ * @param <R>
+ *            the type of the combined elements
+ */
+final class ZipSpliterator<R> implements Spliterator<R>, Consumer<Object> {
+
+	/** 分割位置が揃わないときに配列へ写す要素数の上限(Integer.MAX_VALUE - 8 よりずっと小さい) */
+	static final int MAX_BUFFERED = 1 << 10;
+
+	private final Spliterator<?>[] sources;
+	private final Function<Object[], ? extends R> combiner;
+
+	/** combiner に渡す作業領域(要素毎に再利用する) */
+	private final Object[] buffer;
+
+	/** tryAdvance で受け取った要素の一時置き場 */
+	private Object current;
+
+	ZipSpliterator(Spliterator<?>[] sources, Function<Object[], ? extends R> combiner) {
+		this.sources = sources;
+		this.combiner = combiner;
+		this.buffer = new Object[sources.length];
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void accept(Object t) {
+		current = t;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean tryAdvance(Consumer<? super R> action) {
+		for (int i = 0; i < sources.length; i++) {
+			if (!sources[i].tryAdvance(this)) {
+				return false;
+			}
+			buffer[i] = current;
+		}
+		current = null;
+		action.accept(combiner.apply(buffer));
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Spliterator<R> trySplit() {
+		final long size = sameExactSize();
+		if (size < 2) {
+			return null;
+		}
+
+		final Spliterator<?>[] prefixes = new Spliterator<?>[sources.length];
+		prefixes[0] = sources[0].trySplit();
+		if (prefixes[0] == null) {
+			return null;
+		}
+		final long prefixSize = prefixes[0].getExactSizeIfKnown();
+		for (int i = 1; i < sources.length; i++) {
+			prefixes[i] = prefix(i, prefixSize);
+			if (prefixes[i] == null) {
+				// 分割を取り消す(以降は SUBSIZED でなくなるので、もう分割しない)
+				for (int j = 0; j < i; j++) {
+					sources[j] = new ConcatSpliterator(prefixes[j], sources[j]);
+				}
+				return null;
+			}
+		}
+		return new ZipSpliterator<R>(prefixes, combiner);
+	}
+
+	/**
+	 * Splits exactly {@code n} elements off the head of {@code sources[index]}.
+	 * When the source does not split at the same index as the first source,
+	 * the missing or surplus elements are buffered so that both halves stay
+	 * aligned.
+	 *
+	 * @return {@code null} if more than {@value #MAX_BUFFERED} elements would
+	 *         have to be buffered; {@code sources[index]} still holds all the
+	 *         elements then
+	 */
+	private Spliterator<?> prefix(int index, long n) {
+		final Spliterator<?> source = sources[index];
+		final Spliterator<?> split = source.trySplit();
+		if (split != null && split.getExactSizeIfKnown() == n) {
+			return split;
+		}
+		if (n > MAX_BUFFERED) {
+			if (split != null) {
+				sources[index] = new ConcatSpliterator(split, source);
+			}
+			return null;
+		}
+
+		final Object[] head = new Object[(int) n];
+		int filled = 0;
+		if (split != null) {
+			while (filled < n && split.tryAdvance(this)) {
+				head[filled++] = current;
+			}
+		}
+		while (filled < n && source.tryAdvance(this)) {
+			head[filled++] = current;
+		}
+		current = null;
+
+		if (split != null && split.estimateSize() > 0) {
+			sources[index] = new ConcatSpliterator(split, source);
+		}
+		return Spliterators.spliterator(head, 0, filled, ORDERED);
+	}
+
+	/** 全てのソースのサイズが既知かつ同一であればそのサイズ、そうでなければ -1 */
+	private long sameExactSize() {
+		long size = -1;
+		for (Spliterator<?> s : sources) {
+			if (!s.hasCharacteristics(SIZED | SUBSIZED)) {
+				return -1;
+			}
+			final long n = s.getExactSizeIfKnown();
+			if (size != -1 && size != n) {
+				return -1;
+			}
+			size = n;
+		}
+		return size;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long estimateSize() {
+		long size = Long.MAX_VALUE;
+		for (Spliterator<?> s : sources) {
+			size = Math.min(size, s.estimateSize());
+		}
+		return size;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int characteristics() {
+		int c = ORDERED | SIZED | SUBSIZED;
+		for (Spliterator<?> s : sources) {
+			c &= s.characteristics();
+		}
+		return c;
+	}
+
+	/**
+	 * Two spliterators traversed one after the other. Used only for the
+	 * surplus of a misaligned split, so it does not split itself.
+	 */
+	private static final class ConcatSpliterator implements Spliterator<Object> {
+		private final Spliterator<?> first;
+		private final Spliterator<?> second;
+		private boolean inFirst = true;
+
+		ConcatSpliterator(Spliterator<?> first, Spliterator<?> second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Object> action) {
+			if (inFirst) {
+				if (first.tryAdvance(action)) {
+					return true;
+				}
+				inFirst = false;
+			}
+			return second.tryAdvance(action);
+		}
+
+		@Override
+		public Spliterator<Object> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			final long size = (inFirst ? first.estimateSize() : 0) + second.estimateSize();
+			return size < 0 ? Long.MAX_VALUE : size;
+		}
+
+		@Override
+		public int characteristics() {
+			return first.characteristics() & second.characteristics() & (ORDERED | SIZED);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package jp.que.ti.stream;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Access to the cached value of an {@link Either.Right} (Java 17 or later).
+ * The value is published with release/acquire semantics, and the first value
+ * stored wins, so all the threads see the same instance.
+ */
+final class RightCache {
+	private RightCache() {
+	}
+
+	private static final VarHandle CACHE;
+	static {
+		try {
+			CACHE = MethodHandles.lookup().findVarHandle(Either.Right.class, "rightcache", Object.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/** 格納された値(無ければ null) */
+	static Object get(Either.Right<?, ?> right) {
+		return CACHE.getAcquire(right);
+	}
+
+	/**
+	 * Stores {@code value} and returns the value to use, which is the value
+	 * already stored if there is one.
+	 */
+	static Object publish(Either.Right<?, ?> right, Object value) {
+		final Object witness = CACHE.compareAndExchangeRelease(right, null, value);
+		return witness == null ? value : witness;
+	}
+}
@@ -0,0 +1,21 @@
+package jp.que.ti.stream;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The executor of the blocking calls of
+ * {@link StreamUtils#mapAsyncBlocking} (Java 21 or later): a virtual thread
+ * per call.
+ */
+final class AsyncExecutors {
+	private AsyncExecutors() {
+	}
+
+	private static final ExecutorService BLOCKING = Executors.newVirtualThreadPerTaskExecutor();
+
+	static Executor blocking() {
+		return BLOCKING;
+	}
+}
@@ -0,0 +1,156 @@
+package jp.que.ti.stream;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Allocation budgets of the core operations, measured with
+ * {@code ThreadMXBean.getThreadAllocatedBytes}. A budget is the upper bound of
+ * the bytes allocated per operation, after warming up; escape analysis may
+ * make the actual allocation smaller. The 64-bit HotSpot object sizes with
+ * compressed oops are assumed (12 bytes header, 4 bytes reference, 8 bytes
+ * alignment); the tests are skipped on other VMs. The budgets are close to
+ * the measured values, so that a regression which adds an object per
+ * operation fails. They are measured with the instrumentation disabled, as
+ * shipped (see the surefire settings).
+ */
+public class AllocationTest {
+
+	private static final int WARMUP = 20000;
+	private static final int ITERATIONS = 100000;
+
+	/** JIT やカウンタ自体の割り当てによる誤差(1 回あたり) */
+	private static final double SLACK = 1.0;
+
+	private static com.sun.management.ThreadMXBean threadMXBean;
+
+	/** 結果を捨てないように書き込む */
+	static volatile Object sink;
+
+	@BeforeClass
+	public static void setUp() {
+		final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		threadMXBean = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+		// 予算はバイト単位なので、オブジェクトのサイズが違う VM では測らない
+		Assume.assumeTrue("true".equals(vmOption("UseCompressedOops")));
+		Assume.assumeFalse("true".equals(vmOption("UseCompactObjectHeaders")));
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	/** HotSpot の VM オプションの値(HotSpot でない、またはオプションが無ければ null) */
+	private static String vmOption(String name) {
+		final com.sun.management.HotSpotDiagnosticMXBean bean = ManagementFactory
+				.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+		if (bean == null) {
+			return null;
+		}
+		try {
+			return bean.getVMOption(name).getValue();
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/** op 1 回あたりの割り当てバイト数 */
+	private static double bytesPerOp(Supplier<?> op) {
+		for (int i = 0; i < WARMUP; i++) {
+			sink = op.get();
+		}
+		final long id = Thread.currentThread().getId();
+		final long before = threadMXBean.getThreadAllocatedBytes(id);
+		for (int i = 0; i < ITERATIONS; i++) {
+			sink = op.get();
+		}
+		final long after = threadMXBean.getThreadAllocatedBytes(id);
+		return (double) (after - before) / ITERATIONS;
+	}
+
+	private static void assertBudget(String name, double budget, Supplier<?> op) {
+		final double bytes = bytesPerOp(op);
+		assertTrue(name + " allocates " + bytes + " bytes per operation, over the budget " + budget, bytes <= budget + SLACK);
+	}
+
+	@Test
+	public void test_option() {
+		assertBudget("Option.empty", 0, () -> Option.empty());
+		assertBudget("Option.empty().or", 0, () -> Option.<String> empty().or("x"));
+		assertBudget("Option.of(null)", 0, () -> Option.of(null));
+		// Some
+		assertBudget("Option.of", 16, () -> Option.of("a"));
+		assertBudget("Option.of().getOrNoSuchElementException", 16, () -> Option.of("a").getOrNoSuchElementException());
+		// Lazy (supplier はキャプチャしないラムダ)
+		assertBudget("Option.lazy().isPresent", 24, () -> Option.lazy(() -> "a").isPresent());
+		// stream() への委譲(パイプラインの分、計測値 224 バイト)
+		assertBudget("Option.map", 240, () -> Option.of("a").map(s -> s).findFirst());
+	}
+
+	@Test
+	public void test_either() {
+		// Left
+		assertBudget("Either.left", 16, () -> Either.left("a"));
+		// Right だけ(値をそのまま持つ)
+		assertBudget("Either.right", 24, () -> Either.right("a"));
+		// 値の取得では何も割り当てない
+		assertBudget("Either.right().getOr", 24, () -> {
+			final Either<String, String> e = Either.right("a");
+			e.getOr("b");
+			e.getOrNoSuchElementException();
+			return e.getOr("b");
+		});
+		assertBudget("Either.left().flatMapEither", 16,
+				() -> Either.<String, String> left("a").flatMapEither(s -> Either.right(s)));
+		// 2 つの Right + 結果の Right(計測値 44 前後。JIT がどれかを消すことがある)
+		assertBudget("Either.right().flatMapEither", 72,
+				() -> Either.<String, String> right("a").flatMapEither(s -> Either.right(s)));
+		// 成功時は結果の Right だけ(Callable はキャプチャしないラムダ)
+		assertBudget("Either.catching", 24, () -> Either.catching(() -> "a"));
+		// 失敗時は Left と、例外をキャプチャした Callable
+		final StacklessException failure = new StacklessException("a");
+		assertBudget("Either.catching (failure)", 32, () -> Either.catching(() -> {
+			throw failure;
+		}));
+	}
+
+	@Test
+	public void test_param() {
+		assertBudget("Param.t2", 24, () -> Param.t2("a", "b"));
+		assertBudget("Param.t3", 24, () -> Param.t3("a", "b", "c"));
+	}
+
+	@Test
+	public void test_streamUtils() {
+		final List<Integer> list = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+		// 計測値 90〜111 バイト(イテレータとパイプライン)
+		assertBudget("foldLeft", 128, () -> StreamUtils.foldLeft(list.stream(), 0, (a, b) -> a + b));
+		// 要素ごとには割り当てない(1000 要素でもパイプラインの分だけ)。
+		// IntStream を渡すと要素の boxing が数えられるので、boxing 済みの要素を使う
+		final List<Integer> thousand = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+		// 計測値 115〜118 バイト
+		assertBudget("foldInto", 144, () -> StreamUtils.foldInto(thousand.stream() //
+				, MutableParam.MutableLong::new, (acc, i) -> acc.value += i));
+	}
+
+	@Test
+	public void test_countByKey() {
+		// groupingBy + reducing は要素ごとに Long を作るが、countByKey は可変のセルに数える
+		// (計測値 1000 要素で countByKey 1328 バイト、groupingBy + reducing 16984 バイト)
+		final List<Integer> thousand = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+		final double countByKey = bytesPerOp(() -> StreamUtils.countByKey(thousand.stream(), i -> i % 10));
+		final double groupingBy = bytesPerOp(() -> thousand.stream()
+				.collect(Collectors.groupingBy(i -> i % 10, Collectors.reducing(0L, i -> 1L, Long::sum))));
+		assertTrue("countByKey " + countByKey + " bytes, groupingBy + reducing " + groupingBy + " bytes",
+				countByKey * 4 < groupingBy);
+	}
+}
@@ -0,0 +1,58 @@
+package jp.que.ti.stream;
+
+import static jp.que.ti.stream.CollectorUtils.approxCountDistinct;
+import static jp.que.ti.stream.CollectorUtils.topK;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class CollectorUtilsTest {
+
+	@Test
+	public void test_topK() {
+
+		List<Integer> result = null;
+
+		// *********
+		result = Stream.of(5, 1, 9, 3, 7).collect(topK(3, Comparator.naturalOrder()));
+		assertThat(result, is(Arrays.asList(9, 7, 5)));
+
+		// *********
+		result = IntStream.range(0, 100000).boxed().parallel().collect(topK(4, Comparator.naturalOrder()));
+		assertThat(result, is(Arrays.asList(99999, 99998, 99997, 99996)));
+
+		// *********
+		result = Stream.of(2, 1).collect(topK(5, Comparator.reverseOrder()));
+		assertThat(result, is(Arrays.asList(1, 2)));
+	}
+
+	@Test
+	public void test_approxCountDistinct() {
+
+		long result = 0;
+
+		// *********
+		result = IntStream.range(0, 100000).map(i -> i % 50000).boxed().parallel() //
+				.map(i -> "k" + i).collect(approxCountDistinct());
+		assertTrue("誤差 5% 以内のはず " + result, Math.abs(result - 50000) < 2500);
+
+		// *********
+		result = Stream.of("a", "b", "a").collect(approxCountDistinct());
+		assertThat(result, is(2L));
+
+		// ********* hashCode が同じ "Aa" と "BB" は、64 ビットのハッシュを渡せば区別される
+		assertThat(Stream.of("Aa", "BB").collect(approxCountDistinct()), is(1L));
+		result = Stream.of("Aa", "BB").collect(approxCountDistinct(12,
+				s -> s.chars().asLongStream().reduce(0xcbf29ce484222325L, (h, c) -> (h ^ c) * 0x100000001b3L)));
+		assertThat(result, is(2L));
+	}
+
+}
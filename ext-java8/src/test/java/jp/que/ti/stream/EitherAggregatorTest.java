@@ -0,0 +1,64 @@
+package jp.que.ti.stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class EitherAggregatorTest {
+
+	@Test
+	public void test_accept() {
+		EitherAggregator<String, Long> totals = EitherAggregator.of(Long::sum, 3);
+		assertThat(totals.reduced().isEmpty(), is(true));
+		totals.accept(Either.right(1L));
+		totals.accept(Either.left("a"));
+		totals.accept(Either.right(2L));
+		totals.accept(Either.left("b"));
+		assertThat(totals.rightCount(), is(2L));
+		assertThat(totals.leftCount(), is(2L));
+		assertThat(totals.reduced().getOrNoSuchElementException(), is(3L));
+		assertThat(totals.leftSamples(), is(Arrays.asList("a", "b")));
+
+		// ********* 標本は最初の 3 件まで
+		totals.accept(Either.left("c"));
+		totals.accept(Either.left("d"));
+		assertThat(totals.leftSamples(), is(Arrays.asList("a", "b", "c")));
+		assertThat(totals.leftCount(), is(4L));
+	}
+
+	@Test
+	public void test_concurrent() throws InterruptedException {
+		EitherAggregator<Integer, Long> totals = EitherAggregator.of(Long::sum, 10);
+		IntStream.range(0, 100000).parallel()
+				.mapToObj(i -> i % 10 == 0 ? Either.<Integer, Long> left(i) : Either.<Integer, Long> right((long) i))
+				.forEach(totals);
+		assertThat(totals.leftCount(), is(10000L));
+		assertThat(totals.rightCount(), is(90000L));
+		long expected = 99999L * 100000 / 2 - 10L * (9999L * 10000 / 2);
+		assertThat(totals.reduced().getOrNoSuchElementException(), is(expected));
+		List<Integer> samples = totals.leftSamples();
+		assertThat(samples.size(), is(10));
+		assertThat(new HashSet<Integer>(samples).size(), is(10));
+		assertTrue(samples.stream().allMatch(i -> i % 10 == 0));
+
+		// ********* スレッドごとのセルに縮約した値は reduced() で合わせる
+		EitherAggregator<Integer, Long> striped = EitherAggregator.of(Long::sum, 0);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; t++) {
+			threads.add(new Thread(() -> IntStream.range(0, 1000).forEach(i -> striped.accept(Either.right(1L)))));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertThat(striped.reduced().getOrNoSuchElementException(), is(8000L));
+	}
+}
@@ -5,6 +5,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -103,4 +104,56 @@ public class EitherTest {
 
 	}
 
+	@Test
+	public void test_catching() {
+		Either<Exception, Integer> ok = Either.catching(() -> Integer.parseInt("12"));
+		assertThat(ok.getOrNoSuchElementException(), is(12));
+		Either<Exception, Integer> ng = Either.catching(() -> Integer.parseInt("x"));
+		assertTrue(ng.getLeftOrNoSuchElementException() instanceof NumberFormatException);
+		assertTrue(Either.catching(() -> null).getLeftOrNoSuchElementException() instanceof NullPointerException);
+
+		// ********* 回復
+		assertThat(ng.recover(e -> -1).getOrNoSuchElementException(), is(-1));
+		assertThat(ok.recover(e -> -1).getOrNoSuchElementException(), is(12));
+		assertThat(ng.recover(NumberFormatException.class, e -> 0).getOrNoSuchElementException(), is(0));
+		assertThat(ng.recover(IllegalStateException.class, e -> 0).isLeft(), is(true));
+		assertThat(ng.recoverWith(e -> Either.catching(() -> Integer.parseInt("34"))).getOrNoSuchElementException(),
+				is(34));
+		assertThat(ng.mapLeft(Exception::getClass).getLeftOrNoSuchElementException(),
+				is((Object) NumberFormatException.class));
+		assertTrue(ok.mapLeft(Exception::getMessage) == (Object) ok);
+
+		// ********* スタックトレースを作らない例外
+		Either<Exception, Integer> stackless = Either.catching(() -> {
+			throw new StacklessException("invalid");
+		});
+		assertThat(stackless.getLeftOrNoSuchElementException().getMessage(), is("invalid"));
+		assertThat(stackless.getLeftOrNoSuchElementException().getStackTrace().length, is(0));
+	}
+
+	@Test
+	public void test_lazyRight() {
+		AtomicInteger calls = new AtomicInteger();
+		Either<String, Integer> lazy = Either.Right.lazy(() -> calls.incrementAndGet() * 10);
+		assertThat(calls.get(), is(0));
+		assertThat(lazy.getOrNoSuchElementException(), is(10));
+		assertThat(lazy.getOr(0), is(10));
+		assertThat(calls.get(), is(1));
+		assertThat(lazy, is(Either.right(10)));
+		try {
+			Either.Right.lazy(() -> null).getOrNoSuchElementException();
+			assertTrue("NullPointerException例外発生するはず", false);
+		} catch (NullPointerException e) {
+			assertTrue("NullPointerException例外発生するはず", true);
+		}
+	}
+
+	@Test
+	public void test_core() {
+		// ********* Stream を実装しない ext-java8-core の Either との変換
+		jp.que.ti.core.Either<String, Integer> right = jp.que.ti.core.Either.right(1);
+		assertThat(Either.fromCore(right).getOrNoSuchElementException(), is(1));
+		assertThat(Either.<String, Integer> left("err").toCore(),
+				is(jp.que.ti.core.Either.<String, Integer> left("err")));
+	}
 }
@@ -0,0 +1,114 @@
+package jp.que.ti.stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.junit.Test;
+
+public class InstrumentationTest {
+
+	@Test
+	public void test_probe() {
+		// surefire の設定で有効になっている
+		assertThat(Instrumentation.isEnabled(), is(true));
+
+		Instrumentation.Probe probe = Instrumentation.probe("test-probe");
+		assertThat(Instrumentation.probe("test-probe") == probe, is(true));
+
+		probe.record(Either.<String, Integer> left("error"));
+		probe.record(Either.<String, Integer> right(1));
+		probe.record(Either.<String, Integer> right(2));
+		probe.record(Option.empty());
+		Either<String, Integer> e = probe.flatMapEither(Either.<String, Integer> right(1), i -> Either.right(i + 1));
+		assertThat(e.getOrNoSuchElementException(), is(2));
+
+		assertThat(probe.leftCount(), is(1L));
+		assertThat(probe.rightCount(), is(2L));
+		assertThat(probe.someCount(), is(0L));
+		assertThat(probe.emptyCount(), is(1L));
+		assertThat(probe.flatMapCount(), is(1L));
+	}
+
+	@Test
+	public void test_probeLazy() {
+		Instrumentation.Probe probe = Instrumentation.probe("test-probe-lazy");
+		AtomicInteger calls = new AtomicInteger();
+		Option<String> lazy = Option.lazy(() -> {
+			calls.incrementAndGet();
+			return "a";
+		});
+
+		// ********* 評価前の Lazy は評価せずに lazy として数える
+		probe.record(lazy);
+		assertThat(calls.get(), is(0));
+		assertThat(probe.lazyCount(), is(1L));
+		assertThat(probe.someCount(), is(0L));
+
+		lazy.getOrNoSuchElementException();
+		probe.record(lazy);
+		assertThat(calls.get(), is(1));
+		assertThat(probe.lazyCount(), is(1L));
+		assertThat(probe.someCount(), is(1L));
+	}
+
+	@Test
+	public void test_probeFlatMapEither() {
+		Instrumentation.Probe probe = Instrumentation.probe("test-probe-flatMap");
+		Either<String, Integer> right = Either.right(1);
+		long defaultFlatMap = Instrumentation.DEFAULT.flatMapCount();
+
+		probe.flatMapEither(right, i -> Either.right(i + 1));
+		assertThat(probe.flatMapCount(), is(1L));
+		// ********* 既定のタグには数えない(他のテストと並行しないので増えない)
+		assertThat(Instrumentation.DEFAULT.flatMapCount(), is(defaultFlatMap));
+	}
+
+	@Test
+	public void test_default() {
+		Instrumentation.Probe probe = Instrumentation.DEFAULT;
+		long left = probe.leftCount();
+		long some = probe.someCount();
+		long supplier = probe.rightSupplierCount();
+
+		Either.left("a");
+		Option.of("a");
+		Either.Right.lazy(() -> "a").getOrNoSuchElementException();
+
+		// 他のテストでも数えられるので増分で確認する
+		assertThat(probe.leftCount() >= left + 1, is(true));
+		assertThat(probe.someCount() >= some + 1, is(true));
+		assertThat(probe.rightSupplierCount() >= supplier + 1, is(true));
+	}
+
+	@Test
+	public void test_registry() {
+		Instrumentation.probe("test-registry").record(Option.of(1));
+
+		Map<String, LongSupplier> counters = new HashMap<String, LongSupplier>();
+		Instrumentation.setRegistry(new Instrumentation.MetricsRegistry() {
+			@Override
+			public void counter(String name, String tag, LongSupplier count) {
+				counters.put(name + "/" + tag, count);
+			}
+
+			@Override
+			public void timer(String name, String tag, LongSupplier count, LongSupplier totalNanos) {
+				counters.put(name + "/" + tag, count);
+			}
+		});
+		try {
+			assertThat(counters.get("option.some/test-registry").getAsLong(), is(1L));
+
+			Instrumentation.probe("test-registry-new").record(Either.left("x"));
+			assertThat(counters.get("either.left/test-registry-new").getAsLong(), is(1L));
+		} finally {
+			Instrumentation.setRegistry(null);
+		}
+	}
+
+}
@@ -0,0 +1,190 @@
+package jp.que.ti.stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class MemoizerTest {
+
+	@Test
+	public void test_ttl() {
+		AtomicInteger calls = new AtomicInteger();
+		AtomicLong now = new AtomicLong();
+		Memoizer<Integer, Option<String>> memo = new Memoizer<Integer, Option<String>>(i -> {
+			calls.incrementAndGet();
+			return i % 2 == 0 ? Option.of("v" + i) : Option.empty();
+		}, Option::isEmpty, 100, Duration.ofNanos(100), 100, Duration.ofNanos(10), now::get);
+
+		assertThat(memo.apply(2).getOrNoSuchElementException(), is("v2"));
+		assertThat(memo.apply(3).isEmpty(), is(true));
+		assertThat(memo.apply(2).getOrNoSuchElementException(), is("v2"));
+		assertThat(memo.apply(3).isEmpty(), is(true));
+		assertThat(calls.get(), is(2));
+		assertThat(memo.hitCount(), is(2L));
+		assertThat(memo.missCount(), is(2L));
+
+		// ********* Empty だけ期限切れ
+		now.set(50);
+		memo.apply(2);
+		memo.apply(3);
+		assertThat(calls.get(), is(3));
+		assertThat(memo.expirationCount(), is(1L));
+
+		memo.invalidate(2);
+		memo.apply(2);
+		assertThat(calls.get(), is(4));
+	}
+
+	@Test
+	public void test_sizeBound() {
+		Memoizer<Integer, Either<String, Integer>> memo = Memoizer.ofEither(
+				i -> i < 0 ? Either.left("negative") : Either.right(i) //
+				, 64, Duration.ofHours(1), 0, Duration.ofHours(1));
+
+		IntStream.range(0, 1000).forEach(memo::apply);
+		assertThat(memo.size() <= 64 + Memoizer.STRIPES, is(true));
+		assertThat(memo.evictionCount(), is(1000L - memo.size()));
+
+		// ********* Left はキャッシュしない
+		memo.apply(-1);
+		memo.apply(-1);
+		assertThat(memo.loadCount(), is(1002L));
+	}
+
+	@Test
+	public void test_singleLoad() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		Memoizer<String, Option<String>> memo = Memoizer.ofOption(k -> {
+			calls.incrementAndGet();
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return Option.of(k.toUpperCase());
+		}, 10, Duration.ofHours(1), 10, Duration.ofHours(1));
+
+		Thread first = new Thread(() -> memo.apply("a"));
+		first.start();
+		started.await();
+		Thread[] waiters = new Thread[4];
+		for (int i = 0; i < waiters.length; i++) {
+			waiters[i] = new Thread(() -> assertThat(memo.apply("a").getOrNoSuchElementException(), is("A")));
+			waiters[i].start();
+		}
+		while (memo.missCount() < 1 + waiters.length) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		first.join();
+		for (Thread t : waiters) {
+			t.join();
+		}
+		assertThat(calls.get(), is(1));
+		assertThat(memo.loadCount(), is(1L));
+	}
+
+	@Test
+	public void test_invalidateWhileLoading() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		Memoizer<String, Option<String>> memo = Memoizer.ofOption(k -> {
+			if (calls.incrementAndGet() == 1) {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return Option.of("old");
+			}
+			return Option.of("new");
+		}, 10, Duration.ofHours(1), 10, Duration.ofHours(1));
+
+		Thread first = new Thread(() -> assertThat(memo.apply("a").getOrNoSuchElementException(), is("old")));
+		first.start();
+		started.await();
+		memo.invalidate("a");
+		release.countDown();
+		first.join();
+
+		// ********* invalidate 前に始まった読み込みの結果はキャッシュしない
+		assertThat(memo.apply("a").getOrNoSuchElementException(), is("new"));
+		assertThat(memo.apply("a").getOrNoSuchElementException(), is("new"));
+		assertThat(calls.get(), is(2));
+	}
+
+	@Test
+	public void test_waiterRethrowsCause() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Memoizer<String, Option<String>> memo = Memoizer.ofOption(k -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			throw new AssertionError("load failed");
+		}, 10, Duration.ofHours(1), 10, Duration.ofHours(1));
+
+		AtomicReference<Throwable> ownerThrown = new AtomicReference<Throwable>();
+		AtomicReference<Throwable> waiterThrown = new AtomicReference<Throwable>();
+		Thread first = new Thread(() -> {
+			try {
+				memo.apply("a");
+			} catch (Throwable e) {
+				ownerThrown.set(e);
+			}
+		});
+		first.start();
+		started.await();
+		Thread waiter = new Thread(() -> {
+			try {
+				memo.apply("a");
+			} catch (Throwable e) {
+				waiterThrown.set(e);
+			}
+		});
+		waiter.start();
+		while (memo.missCount() < 2) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		first.join();
+		waiter.join();
+
+		assertThat(ownerThrown.get() instanceof AssertionError, is(true));
+		assertThat(waiterThrown.get() instanceof AssertionError, is(true));
+		assertThat(waiterThrown.get().getMessage(), is("load failed"));
+	}
+
+	@Test
+	public void test_recursiveLoad() {
+		AtomicReference<Memoizer<String, Option<String>>> self = new AtomicReference<Memoizer<String, Option<String>>>();
+		self.set(Memoizer.ofOption(k -> self.get().apply(k), 10, Duration.ofHours(1), 10, Duration.ofHours(1)));
+		try {
+			self.get().apply("a");
+			assertTrue("IllegalStateException例外発生するはず", false);
+		} catch (IllegalStateException e) {
+			assertThat(e.getMessage().startsWith("recursive load of the same key !! "), is(true));
+		}
+
+		// ********* 失敗した読み込みは残らない
+		assertThat(self.get().size(), is(0L));
+	}
+
+}
@@ -0,0 +1,60 @@
+package jp.que.ti.stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+/**
+ * Run by failsafe against the packaged jar: checks that the classes of
+ * META-INF/versions/N are the ones loaded on a JDK of version N or later.
+ */
+public class MultiReleaseJarIT {
+
+	private static int javaVersion() {
+		final String spec = System.getProperty("java.specification.version");
+		return Integer.parseInt(spec.startsWith("1.") ? spec.substring(2) : spec);
+	}
+
+	@Test
+	public void test_loadedFromJar() {
+		final String location = RightCache.class.getProtectionDomain().getCodeSource().getLocation().toString();
+		assertTrue("jar から読み込まれるはず location=" + location, location.endsWith(".jar"));
+	}
+
+	@Test
+	public void test_rightCache() {
+		boolean varHandle = false;
+		for (Field field : RightCache.class.getDeclaredFields()) {
+			varHandle |= field.getType().getName().equals("java.lang.invoke.VarHandle");
+		}
+		assertThat(varHandle, is(javaVersion() >= 17));
+
+		// ********* どちらの実装でも、最初に格納した値が使われる
+		final Either<String, String> right = Either.right("a");
+		assertThat(right.getOrNoSuchElementException(), is("a"));
+		assertThat(right.map(s -> s + "b").getOrNoSuchElementException(), is("ab"));
+	}
+
+	@Test
+	public void test_asyncExecutors() throws Exception {
+		final Thread thread = CompletableFuture.supplyAsync(Thread::currentThread, AsyncExecutors.blocking()).get();
+		assertThat(isVirtual(thread), is(javaVersion() >= 21));
+		if (javaVersion() < 21) {
+			assertTrue(thread.getName(), thread.getName().startsWith("ext-java8-blocking-"));
+		}
+	}
+
+	/** Thread#isVirtual は Java 21 から */
+	private static boolean isVirtual(Thread thread) throws Exception {
+		try {
+			return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package jp.que.ti.stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class OptionTest {
+
+	@Test
+	public void test_lazy() {
+		AtomicInteger calls = new AtomicInteger();
+
+		// *********
+		Option.Lazy<String> opt = Option.lazy(() -> {
+			calls.incrementAndGet();
+			return "a";
+		});
+		assertThat(calls.get(), is(0));
+		assertThat(opt.isEvaluated(), is(false));
+
+		assertThat(opt.isPresent(), is(true));
+		assertThat(opt.map(s -> s + "b").findFirst().get(), is("ab"));
+		assertThat(opt.orElseGet(() -> "foo"), is("a"));
+		assertThat(opt.isEvaluated(), is(true));
+		assertThat(calls.get(), is(1));
+		assertThat(opt.equals(Option.of("a")), is(true));
+
+		// ********* null は Empty と同じ
+		Option<String> none = Option.lazy(() -> null);
+		assertThat(none.isEmpty(), is(true));
+		assertThat(none.or("foo"), is("foo"));
+
+		// ********* 同時に評価しても 1 回だけ
+		calls.set(0);
+		Option<Integer> shared = Option.lazy(() -> calls.incrementAndGet());
+		assertThat(IntStream.range(0, 10000).parallel().mapToObj(i -> shared.getOrNoSuchElementException())
+				.collect(Collectors.toSet()).size(), is(1));
+		assertThat(calls.get(), is(1));
+	}
+
+	@Test
+	public void test_core() {
+		// ********* Stream を実装しない ext-java8-core の Option との変換
+		jp.que.ti.core.Option<String> some = jp.que.ti.core.Option.of("a");
+		assertThat(Option.fromCore(some).getOrNoSuchElementException(), is("a"));
+		assertThat(Option.of("a").toCore(), is(some));
+		assertThat(Option.empty().toCore().isEmpty(), is(true));
+	}
+
+}
@@ -0,0 +1,41 @@
+package jp.que.ti.stream;
+
+import static jp.que.ti.stream.OptionalUtils.forYield;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+public class OptionalUtilsTest {
+
+	@Test
+	public void test_forYield() {
+		Optional<Integer> o = Optional.of(1);
+
+		assertThat(forYield(o, Optional.of("b"), (a, b) -> a + b).get(), is("1b"));
+		assertThat(forYield(o, o, o, t -> t._1 + t._2 + t._3).get(), is(3));
+
+		// *********
+		Optional<Integer> sum = forYield(o, o, o, o, o, o, o, o, o, o, o, //
+				o, o, o, o, o, o, o, o, o, o, Optional.of(100), //
+				t -> t._1 + t._21 + t._22);
+		assertThat(sum.get(), is(102));
+
+		// *********
+		Optional<Integer> empty = forYield(o, o, o, o, o, o, Optional.<Integer> empty(), //
+				t -> t._1 + t._7);
+		assertTrue(empty.isPresent() == false);
+	}
+
+	@Test
+	public void test_tuple() {
+		assertThat(Param.t2("a", 1), is(Param.t2("a", 1)));
+		assertThat(Param.t6(1, 2, 3, 4, 5, null).hashCode(), is(Param.t6(1, 2, 3, 4, 5, null).hashCode()));
+		assertTrue(Param.t6(1, 2, 3, 4, 5, 6).equals(Param.t6(1, 2, 3, 4, 5, 7)) == false);
+		assertThat(Param.t3("a", "b", "c").toString(), is("Tuple3(_1: a, _2: b, _3:c)"));
+	}
+
+}
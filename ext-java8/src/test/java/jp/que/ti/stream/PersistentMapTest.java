@@ -0,0 +1,66 @@
+package jp.que.ti.stream;
+
+import static jp.que.ti.stream.StreamUtils.foldLeft;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class PersistentMapTest {
+
+	/** ハッシュ値が衝突するキー */
+	private static final class Collide {
+		final String name;
+
+		Collide(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public int hashCode() {
+			return 42;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Collide && ((Collide) obj).name.equals(name);
+		}
+	}
+
+	@Test
+	public void test_putGet() {
+
+		PersistentMap<Integer, Integer> m = foldLeft(IntStream.range(0, 50000), PersistentMap.<Integer, Integer> empty() //
+				, (map, i) -> map.merge(i % 1000, 1, Integer::sum));
+		assertThat(m.size(), is(1000));
+		assertThat(m.get(999).getOrNoSuchElementException(), is(50));
+		assertTrue(m.get(1000).isEmpty());
+		assertThat(m.stream().mapToInt(t -> t._2).sum(), is(50000));
+
+		// *********
+		PersistentMap<Integer, Integer> removed = foldLeft(IntStream.range(0, 500), m, PersistentMap::remove);
+		assertThat(removed.size(), is(500));
+		assertTrue(removed.containsKey(499) == false);
+		assertTrue(m.containsKey(499));
+		assertThat(removed.getOr(500, -1), is(50));
+	}
+
+	@Test
+	public void test_collision() {
+
+		PersistentMap<Collide, String> m = PersistentMap.<Collide, String> empty() //
+				.put(new Collide("a"), "A").put(new Collide("b"), "B").put(new Collide("c"), "C");
+		assertThat(m.size(), is(3));
+		assertThat(m.getOr(new Collide("b"), ""), is("B"));
+
+		m = m.remove(new Collide("b"));
+		assertThat(m.size(), is(2));
+		assertTrue(m.get(new Collide("b")).isEmpty());
+		assertThat(m.getOr(new Collide("c"), ""), is("C"));
+		assertThat(m, is(PersistentMap.<Collide, String> empty().put(new Collide("c"), "C").put(new Collide("a"), "A")));
+	}
+
+}
@@ -0,0 +1,54 @@
+package jp.que.ti.stream;
+
+import static jp.que.ti.stream.StreamUtils.foldLeft;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class PersistentVectorTest {
+
+	@Test
+	public void test_append() {
+
+		PersistentVector<Integer> v = foldLeft(IntStream.range(0, 100000), PersistentVector.<Integer> empty() //
+				, PersistentVector::append);
+		assertThat(v.size(), is(100000));
+		assertThat(v.get(0), is(0));
+		assertThat(v.get(1056), is(1056));
+		assertThat(v.get(99999), is(99999));
+		assertThat(v.stream().mapToLong(i -> i).sum(), is(99999L * 100000 / 2));
+
+		try {
+			v.get(100000);
+			assertTrue("IndexOutOfBoundsException例外発生するはず", false);
+		} catch (IndexOutOfBoundsException e) {
+			assertTrue("IndexOutOfBoundsException例外発生するはず", true);
+		}
+	}
+
+	@Test
+	public void test_set() {
+
+		PersistentVector<Integer> v = foldLeft(IntStream.range(0, 2000), PersistentVector.<Integer> empty() //
+				, PersistentVector::append);
+		PersistentVector<Integer> v2 = v.set(5, -5).set(1999, -1999);
+
+		assertThat(v.get(5), is(5));
+		assertThat(v2.get(5), is(-5));
+		assertThat(v2.get(1999), is(-1999));
+		assertThat(v2.get(6), is(6));
+
+		// *********
+		PersistentVector<String> s = PersistentVector.of("a", "b");
+		assertThat(s.append("c").stream().collect(Collectors.toList()), is(Arrays.asList("a", "b", "c")));
+		assertThat(s, is(PersistentVector.of("a", "b")));
+		assertThat(s.toString(), is("PersistentVector[a, b]"));
+	}
+
+}
@@ -0,0 +1,745 @@
+package jp.que.ti.stream;
+
+import static jp.que.ti.stream.StreamUtils.batched;
+import static jp.que.ti.stream.StreamUtils.collectParallel;
+import static jp.que.ti.stream.StreamUtils.countByKey;
+import static jp.que.ti.stream.StreamUtils.distinctApprox;
+import static jp.que.ti.stream.StreamUtils.externalSort;
+import static jp.que.ti.stream.StreamUtils.foldByKey;
+import static jp.que.ti.stream.StreamUtils.foldInto;
+import static jp.que.ti.stream.StreamUtils.foldLeft;
+import static jp.que.ti.stream.StreamUtils.foldLeftParallel;
+import static jp.que.ti.stream.StreamUtils.foldLeftResumable;
+import static jp.que.ti.stream.StreamUtils.forStream;
+import static jp.que.ti.stream.StreamUtils.grouped;
+import static jp.que.ti.stream.StreamUtils.hashJoin;
+import static jp.que.ti.stream.StreamUtils.hashLeftJoin;
+import static jp.que.ti.stream.StreamUtils.hashOuterJoin;
+import static jp.que.ti.stream.StreamUtils.instrument;
+import static jp.que.ti.stream.StreamUtils.mapAsync;
+import static jp.que.ti.stream.StreamUtils.mapAsyncBlocking;
+import static jp.que.ti.stream.StreamUtils.mapAsyncUnordered;
+import static jp.que.ti.stream.StreamUtils.mappedLines;
+import static jp.que.ti.stream.StreamUtils.mergeJoin;
+import static jp.que.ti.stream.StreamUtils.mergeLeftJoin;
+import static jp.que.ti.stream.StreamUtils.mergeOuterJoin;
+import static jp.que.ti.stream.StreamUtils.sliding;
+import static jp.que.ti.stream.StreamUtils.sumByKey;
+import static jp.que.ti.stream.StreamUtils.teeLefts;
+import static jp.que.ti.stream.StreamUtils.unzip;
+import static jp.que.ti.stream.StreamUtils.zip;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.junit.Test;
+
+import jp.que.ti.stream.Param.Tuple;
+import jp.que.ti.stream.Param.Tuple3;
+
+public class StreamUtilsTest {
+
+	@Test
+	public void test_foldLeft() {
+
+		String result = null;
+		IntStream iStream = null;
+
+		// *********
+		iStream = IntStream.range(1, 10);
+		result = foldLeft(iStream, "", (str, i) -> str + i);
+		assertThat(result, is("123456789"));
+
+		// *********
+		iStream = IntStream.range(1, 10) //
+				.filter(i -> i % 2 == 0);
+		result = foldLeft(iStream, "", (str, i) -> str + i);
+		assertThat(result, is("2468"));
+
+		// *********
+		Stream<String> stream = Stream.of("a", "b", "c", "d")//
+				.filter(str -> str.equals("c") || str.equals("a"));
+		result = foldLeft(stream, "", (str, i) -> str + i);
+		assertThat(result, is("ac"));
+
+	}
+
+	@Test
+	public void test_foldLeft_persistentString() {
+
+		// *********
+		PersistentString pstr = foldLeft(IntStream.range(1, 10), PersistentString.empty(), PersistentString::append);
+		assertThat(pstr.toString(), is("123456789"));
+
+		// ********* 同じ途中結果から分岐しても互いに影響しない
+		assertThat(pstr.append("x").toString(), is("123456789x"));
+		assertThat(pstr.append("y").toString(), is("123456789y"));
+		assertThat(pstr.toString(), is("123456789"));
+
+	}
+
+	@Test
+	public void test_zip() {
+
+		List<Tuple<String, Integer>> result = null;
+
+		// *********
+		result = zip(Stream.of("a", "b", "c"), Stream.of(1, 2, 3, 4)).collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList(Param.t2("a", 1), Param.t2("b", 2), Param.t2("c", 3))));
+
+		// *********
+		List<Tuple3<Integer, Integer, Integer>> result3 = zip( //
+				IntStream.range(0, 10000).boxed().parallel() //
+				, IntStream.range(0, 10000).boxed().collect(Collectors.toList()).stream() //
+				, Stream.of(new Integer[10000]).map(x -> 1)) //
+				.collect(Collectors.toList());
+		assertThat(result3.size(), is(10000));
+		assertThat(result3.stream().allMatch(t -> t._1.equals(t._2) && t._3 == 1), is(true));
+
+		// ********* 分割位置が揃わない(イテレータは 1024 個ずつ分割する)
+		List<Integer> list = IntStream.range(0, 100000).boxed().collect(Collectors.toList());
+		Supplier<Stream<Tuple<Integer, Integer>>> misaligned = () -> zip( //
+				IntStream.range(0, 100000).boxed().parallel() //
+				, StreamSupport.stream(Spliterators.spliterator(list.iterator(), list.size(), Spliterator.ORDERED), true));
+		// 揃えるには 50000 個写す必要があるので分割しない
+		Spliterator<Tuple<Integer, Integer>> spliterator = misaligned.get().spliterator();
+		assertThat(spliterator.trySplit() == null, is(true));
+		assertThat(spliterator.trySplit() == null, is(true));
+		long[] count = new long[1];
+		spliterator.forEachRemaining(t -> {
+			assertThat(t._1, is(t._2));
+			count[0]++;
+		});
+		assertThat(count[0], is(100000L));
+		assertThat(misaligned.get().allMatch(t -> t._1.equals(t._2)), is(true));
+
+		// ********* 少しだけ写せば揃うなら分割する
+		Spliterator<Tuple<Integer, Integer>> small = zip(IntStream.range(0, 1000).boxed().parallel() //
+				, StreamSupport.stream(Spliterators.spliterator(list.subList(0, 1000).iterator(), 1000, Spliterator.ORDERED), false)) //
+				.spliterator();
+		Spliterator<Tuple<Integer, Integer>> head = small.trySplit();
+		assertThat(head.estimateSize() + small.estimateSize(), is(1000L));
+		List<Tuple<Integer, Integer>> all = new ArrayList<Tuple<Integer, Integer>>();
+		head.forEachRemaining(all::add);
+		small.forEachRemaining(all::add);
+		assertThat(all.stream().allMatch(t -> t._1.equals(t._2)), is(true));
+		assertThat(all.size(), is(1000));
+	}
+
+	@Test
+	public void test_unzip() {
+
+		Tuple<List<String>, Integer> result = Stream.of(Param.t2("a", 1), Param.t2("b", 2), Param.t2("c", 3)) //
+				.collect(unzip(Collectors.toList(), Collectors.summingInt(i -> i)));
+		assertThat(result._1, is(Arrays.asList("a", "b", "c")));
+		assertThat(result._2, is(6));
+	}
+
+	@Test
+	public void test_grouped() {
+
+		List<List<Integer>> result = null;
+
+		// *********
+		result = grouped(Stream.of(1, 2, 3, 4, 5), 2).collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5))));
+
+		// *********
+		result = grouped(IntStream.range(0, 10001).boxed().parallel(), 7).collect(Collectors.toList());
+		assertThat(result.size(), is(1429));
+		assertThat(result.stream().limit(1428).allMatch(l -> l.size() == 7), is(true));
+		assertThat(result.get(1428), is(Arrays.asList(9996, 9997, 9998, 9999, 10000)));
+		assertThat(result.stream().flatMap(List::stream).collect(Collectors.toList()), //
+				is(IntStream.range(0, 10001).boxed().collect(Collectors.toList())));
+
+		// *********
+		result = grouped(Stream.iterate(0, i -> i + 1).limit(5000).parallel(), 1000).collect(Collectors.toList());
+		assertThat(result.size(), is(5));
+		assertThat(result.get(4).get(999), is(4999));
+	}
+
+	@Test
+	public void test_sliding() {
+
+		List<List<Integer>> result = null;
+
+		// *********
+		result = sliding(Stream.of(1, 2, 3, 4, 5), 3, 1).collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(2, 3, 4), Arrays.asList(3, 4, 5))));
+
+		// *********
+		result = sliding(Stream.of(1, 2, 3, 4, 5, 6, 7), 2, 3).collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(4, 5))));
+
+		// *********
+		assertThat(sliding(Stream.of(1, 2), 3, 1).count(), is(0L));
+	}
+
+	@Test
+	public void test_hashJoin() {
+
+		List<String> result = null;
+
+		// *********
+		result = hashJoin(Stream.of("a1", "b1", "c1", "a2"), Stream.of("a9", "c9", "c8", "d9") //
+				, s -> s.charAt(0), s -> s.charAt(0)) //
+				.map(t -> t._1 + t._2).sorted().collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList("a1a9", "a2a9", "c1c8", "c1c9")));
+
+		// *********
+		result = hashLeftJoin(Stream.of("a1", "b1", "c1"), Stream.of("a9", "c9", "c8") //
+				, s -> s.charAt(0), s -> s.charAt(0)) //
+				.map(t -> t._1 + t._2.or("-")).collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList("a1a9", "b1-", "c1c9", "c1c8")));
+
+		// *********
+		result = hashOuterJoin(Stream.of("a1", "b1"), Stream.of("a9", "d9") //
+				, s -> s.charAt(0), s -> s.charAt(0)) //
+				.map(t -> t._1.or("-") + t._2.or("-")).collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList("a1a9", "b1-", "-d9")));
+
+		// *********
+		long count = hashJoin(IntStream.range(0, 100000).boxed().parallel(), IntStream.range(0, 1000).boxed() //
+				, i -> i % 1000, i -> i).count();
+		assertThat(count, is(100000L));
+	}
+
+	@Test
+	public void test_mergeJoin() {
+
+		List<String> result = null;
+		final Comparator<Character> cmp = Comparator.naturalOrder();
+
+		// *********
+		result = mergeJoin(Stream.of("a1", "a2", "b1", "c1"), Stream.of("a9", "c8", "c9", "d9") //
+				, s -> s.charAt(0), s -> s.charAt(0), cmp) //
+				.map(t -> t._1 + t._2).collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList("a1a9", "a2a9", "c1c8", "c1c9")));
+
+		// *********
+		result = mergeLeftJoin(Stream.of("a1", "b1", "c1"), Stream.of("a9", "c9") //
+				, s -> s.charAt(0), s -> s.charAt(0), cmp) //
+				.map(t -> t._1 + t._2.or("-")).collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList("a1a9", "b1-", "c1c9")));
+
+		// *********
+		result = mergeOuterJoin(Stream.of("a1", "b1", "e1"), Stream.of("a9", "c9", "d9") //
+				, s -> s.charAt(0), s -> s.charAt(0), cmp) //
+				.map(t -> t._1.or("-") + t._2.or("-")).collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList("a1a9", "b1-", "-c9", "-d9", "e1-")));
+
+		// *********
+		try {
+			mergeJoin(Stream.of("b1", "a1"), Stream.of("a9", "b9") //
+					, s -> s.charAt(0), s -> s.charAt(0), cmp).count();
+			assertTrue("IllegalStateException例外発生するはず", false);
+		} catch (IllegalStateException e) {
+			assertTrue("IllegalStateException例外発生するはず", true);
+		}
+	}
+
+	@Test
+	public void test_forStream() {
+
+		List<Tuple3<Integer, Integer, Integer>> result = null;
+
+		// *********
+		result = forStream(IntStream.rangeClosed(1, 20).boxed()) //
+				.flatMap(a -> IntStream.rangeClosed(a, 20).boxed()) //
+				.flatMap((a, b) -> IntStream.rangeClosed(b, 20).boxed()) //
+				.where(t -> t._1 * t._1 + t._2 * t._2 == t._3 * t._3) //
+				.stream().collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList(Param.t3(3, 4, 5), Param.t3(5, 12, 13), Param.t3(6, 8, 10) //
+				, Param.t3(8, 15, 17), Param.t3(9, 12, 15), Param.t3(12, 16, 20))));
+
+		// *********
+		List<String> guarded = forStream(Stream.of(1, 2, 3)) //
+				.where(a -> a != 2) //
+				.flatMap(a -> Stream.of("x", "y")) //
+				.where((a, b) -> !(a == 3 && b.equals("x"))) //
+				.yield((a, b) -> a + b) //
+				.collect(Collectors.toList());
+		assertThat(guarded, is(Arrays.asList("1x", "1y", "3y")));
+
+		// *********
+		long count = forStream(IntStream.range(0, 1000).boxed().parallel()) //
+				.flatMap(a -> IntStream.range(0, 100).boxed()) //
+				.stream().count();
+		assertThat(count, is(100000L));
+
+		// ********* 打ち切ったときも close で内側のストリームを閉じる
+		AtomicInteger opened = new AtomicInteger();
+		AtomicInteger closed = new AtomicInteger();
+		try (Stream<Tuple<Integer, Integer>> s = forStream(Stream.of(1, 2, 3)) //
+				.flatMap(a -> {
+					opened.incrementAndGet();
+					return Stream.of(a, a + 1, a + 2).onClose(closed::incrementAndGet);
+				}).stream()) {
+			assertThat(s.filter(t -> t._2 == 3).findFirst().get(), is(Param.t2(1, 3)));
+			assertThat(opened.get(), is(1));
+			assertThat(closed.get(), is(0));
+		}
+		assertThat(closed.get(), is(1));
+	}
+
+	@Test
+	public void test_distinctApprox() {
+
+		List<Integer> result = distinctApprox(Stream.of(3, 1, 3, 2, 1, 4), 100, 0.01).collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList(3, 1, 2, 4)));
+
+		long count = distinctApprox(IntStream.range(0, 20000).map(i -> i % 10000).boxed(), 10000, 0.01).count();
+		assertTrue("偽陽性は 1% 程度のはず " + count, 9800 <= count && count <= 10000);
+
+		// ********* hashCode が同じ "Aa" と "BB" は、64 ビットのハッシュを渡せば区別される
+		assertThat(distinctApprox(Stream.of("Aa", "BB"), 100, 0.01).count(), is(1L));
+		assertThat(distinctApprox(Stream.of("Aa", "BB"), 100, 0.01, //
+				s -> s.chars().asLongStream().reduce(0xcbf29ce484222325L, (h, c) -> (h ^ c) * 0x100000001b3L))
+				.count(), is(2L));
+	}
+
+	@Test
+	public void test_externalSort() throws IOException {
+
+		List<Tuple<Integer, String>> result = null;
+		final Codec<Tuple<Integer, String>> codec = Codec.tuple(Codec.integer(), Codec.string());
+		final Comparator<Tuple<Integer, String>> cmp = Comparator.comparing(t -> t._1);
+
+		// *********
+		try (Stream<Tuple<Integer, String>> sorted = externalSort( //
+				IntStream.range(0, 10000).map(i -> (i * 7919) % 10000).mapToObj(i -> Param.t2(i / 2, "v" + i)) //
+				, cmp, codec, 999)) {
+			result = sorted.collect(Collectors.toList());
+		}
+		assertThat(result.size(), is(10000));
+		for (int i = 1; i < result.size(); i++) {
+			assertTrue(result.get(i - 1)._1 <= result.get(i)._1);
+		}
+
+		// ********* 安定ソート
+		result = externalSort(Stream.of(Param.t2(2, "a"), Param.t2(1, "b"), Param.t2(2, "c"), Param.t2(1, "d")) //
+				, cmp, codec, 1).collect(Collectors.toList());
+		assertThat(result, is(Arrays.asList(Param.t2(1, "b"), Param.t2(1, "d"), Param.t2(2, "a"), Param.t2(2, "c"))));
+
+		// ********* 100 個の並びを 2 個ずつ何段かに分けて併合する。閉じなくても一時ファイルは残らない
+		Path tmp = Paths.get(System.getProperty("java.io.tmpdir"));
+		long before = countSortFiles(tmp);
+		List<Tuple<Integer, String>> input = IntStream.range(0, 1000)
+				.mapToObj(i -> Param.t2((i * 7919) % 100, "v" + i)).collect(Collectors.toList());
+		result = StreamSupport.stream(new ExternalSortSpliterator<Tuple<Integer, String>>(input.spliterator(), cmp,
+				codec, 10, 2), false).collect(Collectors.toList());
+		assertThat(result, is(input.stream().sorted(cmp).collect(Collectors.toList())));
+		assertThat(countSortFiles(tmp), is(before));
+	}
+
+	private static long countSortFiles(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(f -> f.getFileName().toString().startsWith("ext-java8-sort-")).count();
+		}
+	}
+
+	@Test
+	public void test_mapAsync() {
+
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final Function<Integer, CompletableFuture<Integer>> call = i -> CompletableFuture
+				.supplyAsync(() -> {
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					try {
+						Thread.sleep((i * 7) % 5);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					running.decrementAndGet();
+					if (i == 13) {
+						throw new IllegalArgumentException("boo");
+					}
+					return i * 2;
+				});
+
+		// *********
+		List<Either<Throwable, Integer>> result = mapAsync(IntStream.range(0, 50).boxed(), 4, call) //
+				.collect(Collectors.toList());
+		assertThat(result.size(), is(50));
+		assertTrue(maxRunning.get() <= 4);
+		assertThat(result.get(12).getOrNoSuchElementException(), is(24));
+		assertTrue(result.get(13).getLeftOrNoSuchElementException() instanceof IllegalArgumentException);
+		assertThat(result.get(49).getOrNoSuchElementException(), is(98));
+
+		// *********
+		maxRunning.set(0);
+		int sum = mapAsyncUnordered(IntStream.range(0, 50).boxed(), 3, call) //
+				.mapToInt(e -> e.getOr(0)).sum();
+		assertThat(sum, is(49 * 50 - 26));
+		assertTrue(maxRunning.get() <= 3);
+
+		// ********* null の future
+		for (boolean ordered : new boolean[] { true, false }) {
+			Function<Integer, CompletableFuture<Integer>> nullCall = i -> i == 1 ? null
+					: CompletableFuture.completedFuture(i);
+			List<Either<Throwable, Integer>> withNull = (ordered ? mapAsync(Stream.of(0, 1, 2), 2, nullCall)
+					: mapAsyncUnordered(Stream.of(0, 1, 2), 2, nullCall)).collect(Collectors.toList());
+			assertThat(withNull.size(), is(3));
+			assertThat(withNull.stream().filter(Either::isLeft)
+					.map(e -> e.getLeftOrNoSuchElementException().getMessage()).collect(Collectors.toList()),
+					is(Arrays.asList("the mapper returned a null future !! ")));
+		}
+
+		// ********* ブロックする関数
+		List<String> names = mapAsyncBlocking(Stream.of("a", "b", "c"), 2, str -> {
+			if (str.equals("b")) {
+				throw new IllegalStateException("boo");
+			}
+			return str.toUpperCase();
+		}).map(e -> e.isLeft() ? "error" : e.getOrNoSuchElementException()).collect(Collectors.toList());
+		assertThat(names, is(Arrays.asList("A", "error", "C")));
+	}
+
+	@Test
+	public void test_foldByKey() {
+
+		Map<Integer, String> result = null;
+
+		// *********
+		result = foldByKey(IntStream.range(1, 10).boxed(), i -> i % 3, () -> "", (str, i) -> str + i, String::concat);
+		assertThat(result.get(0), is("369"));
+		assertThat(result.get(1), is("147"));
+
+		// *********
+		result = foldByKey(IntStream.range(0, 3000).boxed().parallel(), i -> i % 3, () -> "" //
+				, (str, i) -> i < 9 ? str + i : str, String::concat);
+		assertThat(result.get(2), is("258"));
+
+		// *********
+		Map<Integer, Long> counts = countByKey(IntStream.range(0, 100000).boxed().parallel(), i -> i % 10);
+		assertThat(counts.get(7), is(10000L));
+
+		Map<Boolean, Long> sums = sumByKey(IntStream.range(0, 101).boxed(), i -> i % 2 == 0, i -> i);
+		assertThat(sums.get(true), is(2550L));
+		assertThat(StreamUtils.tuples(sums).count(), is(2L));
+
+		// ********* op や combiner が null を返したら、分割の仕方によらず NullPointerException
+		try {
+			foldByKey(IntStream.range(0, 10).boxed(), i -> i % 3, () -> "", (str, i) -> null, String::concat);
+			assertTrue("NullPointerException例外発生するはず", false);
+		} catch (NullPointerException e) {
+			assertTrue(e.getMessage().endsWith(" !! key=0"));
+		}
+		try {
+			foldByKey(IntStream.range(0, 100000).boxed().parallel(), i -> i % 3, () -> "", (str, i) -> "x",
+					(a, b) -> null);
+			assertTrue("NullPointerException例外発生するはず", false);
+		} catch (NullPointerException e) {
+			// 別のスレッドで投げた例外は ForkJoin が作り直し、元の例外を cause にする
+			final Throwable thrown = e.getMessage() != null ? e : e.getCause();
+			assertTrue(thrown.getMessage().contains("the combiner of foldByKey returned null !! "));
+		}
+	}
+
+	@Test
+	public void test_foldInto() {
+
+		// *********
+		Tuple<Long, Double> countSum = foldInto(IntStream.range(1, 101), MutableParam.MutableLongDouble::new //
+				, (acc, i) -> {
+					acc._1++;
+					acc._2 += i;
+				}, MutableParam.MutableLongDouble::toTuple);
+		assertThat(countSum, is(Param.t2(100L, 5050.0)));
+
+		// *********
+		Tuple3<String, Integer, Integer> minMax = foldInto(Stream.of("b", "a", "c") //
+				, () -> new MutableParam.MutableTuple3<String, Integer, Integer>("", Integer.MAX_VALUE, 0) //
+				, (acc, str) -> {
+					acc._1 += str;
+					acc._2 = Math.min(acc._2, str.charAt(0));
+					acc._3 = Math.max(acc._3, str.charAt(0));
+				}, MutableParam.MutableTuple3::toTuple);
+		assertThat(minMax, is(Param.t3("bac", (int) 'a', (int) 'c')));
+	}
+
+	@Test
+	public void test_instrument() {
+		StageHistogram sink = new StageHistogram();
+
+		// *********
+		long sum;
+		try (Stream<Integer> s = instrument(IntStream.range(0, 1000).boxed(), "all", sink)) {
+			sum = s.parallel().mapToLong(i -> i).sum();
+		}
+		assertThat(sum, is(999L * 1000 / 2));
+		StageHistogram.Stats all = sink.stats("all");
+		assertThat(all.count(), is(1000L));
+		assertThat(all.completedCount(), is(1L));
+		assertThat(all.closedCount(), is(1L));
+		assertThat(all.shortCircuitedCount(), is(0L));
+		assertThat(all.quantileNanos(0.5) <= all.quantileNanos(0.99), is(true));
+
+		// ********* findFirst で打ち切り
+		try (Stream<Integer> s = instrument(Stream.iterate(0, i -> i + 1), "first", sink)) {
+			assertThat(s.filter(i -> i == 10).findFirst().get(), is(10));
+		}
+		StageHistogram.Stats first = sink.stats("first");
+		assertThat(first.count(), is(11L));
+		assertThat(first.completedCount(), is(0L));
+		assertThat(first.shortCircuitedCount(), is(1L));
+	}
+
+	@Test
+	public void test_mappedLines() throws Exception {
+		Path file = Files.createTempFile("mapped-lines", ".csv");
+		try {
+			// ********* \r\n、不正な行、窓(16 バイト)より長い行、末尾の改行なし
+			Files.write(file, "1,a\r\n2,b\nx,c\n4,dddddddddddddddddddddddddddddddd\n\n6,f".getBytes(StandardCharsets.UTF_8));
+			Function<ByteBuffer, Either<ParseError, Integer>> firstColumn = bytes -> {
+				int n = 0;
+				while (bytes.hasRemaining()) {
+					byte b = bytes.get();
+					if (b == ',') {
+						return Either.right(n);
+					}
+					if (b < '0' || '9' < b) {
+						return Either.left(ParseError.of("not a number"));
+					}
+					n = n * 10 + (b - '0');
+				}
+				return Either.left(ParseError.of("no comma"));
+			};
+			List<Either<ParseError, Integer>> result;
+			try (Stream<Either<ParseError, Integer>> s = mappedLines(file, firstColumn, 16)) {
+				result = s.collect(Collectors.toList());
+			}
+			assertThat(result.size(), is(6));
+			assertThat(result.get(0).getOrNoSuchElementException(), is(1));
+			assertThat(result.get(1).getOrNoSuchElementException(), is(2));
+			assertThat(result.get(2).getLeftOrNoSuchElementException().offset(), is(9L));
+			assertThat(result.get(3).getOrNoSuchElementException(), is(4));
+			assertThat(result.get(4).getLeftOrNoSuchElementException().message(), is("no comma"));
+			assertThat(result.get(5).getOrNoSuchElementException(), is(6));
+
+			// ********* 並列(行の境界で分割される)、CharSequence で受け取る
+			List<String> lines = IntStream.range(0, 50000).mapToObj(i -> i + ",ｖａｌｕｅ" + i)
+					.collect(Collectors.toList());
+			Files.write(file, lines, StandardCharsets.UTF_8);
+			try (Stream<Either<ParseError, String>> s = mappedLines(file, StandardCharsets.UTF_8,
+					chars -> Either.right(chars.subSequence(chars.length() - 3, chars.length()).toString()))) {
+				List<String> tails = s.parallel().map(e -> e.getOrNoSuchElementException())
+						.collect(Collectors.toList());
+				assertThat(tails, is(lines.stream().map(l -> l.substring(l.length() - 3)).collect(Collectors.toList())));
+			}
+			try (Stream<Either<ParseError, Integer>> s = mappedLines(file, firstColumn, 4096)) {
+				assertThat(s.parallel().mapToLong(e -> e.getOrNoSuchElementException()).sum(), is(49999L * 50000 / 2));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void test_teeLefts() throws Exception {
+		// *********
+		List<List<String>> batches = Collections.synchronizedList(new ArrayList<List<String>>());
+		try (LeftTee<String> tee = LeftTee.of(batches::add, 4, 3, LeftTee.Overflow.BLOCK)) {
+			List<Integer> rights;
+			try (Stream<Integer> s = teeLefts(IntStream.range(0, 20)
+					.mapToObj(i -> i % 3 == 0 ? Either.<String, Integer> left("e" + i) : Either.<String, Integer> right(i)),
+					tee)) {
+				rights = s.collect(Collectors.toList());
+			}
+			assertThat(rights, is(Arrays.asList(1, 2, 4, 5, 7, 8, 10, 11, 13, 14, 16, 17, 19)));
+			// close で流し終わっている
+			assertThat(batches.stream().flatMap(List::stream).collect(Collectors.toList()),
+					is(Arrays.asList("e0", "e3", "e6", "e9", "e12", "e15", "e18")));
+			assertTrue(batches.stream().allMatch(b -> b.size() <= 3));
+			assertThat(tee.droppedCount(), is(0L));
+		}
+
+		// ********* 満杯なら捨てる
+		CountDownLatch release = new CountDownLatch(1);
+		LeftTee<Integer> dropping = LeftTee.of(batch -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, 2, 3, LeftTee.Overflow.DROP_NEWEST);
+		long count = teeLefts(IntStream.range(0, 10).mapToObj(i -> Either.<Integer, Integer> left(i)), dropping)
+				.count();
+		assertThat(count, is(0L));
+		release.countDown();
+		dropping.close();
+		assertTrue(dropping.droppedCount() >= 5);
+		assertThat(dropping.droppedCount() + dropping.consumedCount(), is(10L));
+
+		// ********* consumer が Error を投げても止まらない(BLOCK でも accept/close が戻る)
+		AtomicInteger calls = new AtomicInteger();
+		List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+		try (LeftTee<Integer> failing = LeftTee.of(batch -> {
+			if (calls.getAndIncrement() == 0) {
+				throw new AssertionError("boom");
+			}
+			received.addAll(batch);
+		}, 2, 1, LeftTee.Overflow.BLOCK)) {
+			IntStream.range(0, 20).boxed().forEach(failing);
+			failing.flush();
+			assertThat(failing.failedBatchCount(), is(1L));
+			assertThat(failing.consumedCount(), is(19L));
+			assertThat(received.size(), is(19));
+		}
+
+		// ********* VirtualMachineError は記録して止まり、close が投げ直す。残りは捨てた数に入る
+		CountDownLatch started = new CountDownLatch(1);
+		LeftTee<Integer> fatal = LeftTee.of(batch -> {
+			try {
+				started.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			throw new OutOfMemoryError("test");
+		}, 10, 1, LeftTee.Overflow.BLOCK);
+		IntStream.range(0, 5).boxed().forEach(fatal);
+		started.countDown();
+		try {
+			fatal.close();
+			assertTrue("IllegalStateException例外発生するはず", false);
+		} catch (IllegalStateException e) {
+			assertTrue(e.getCause() instanceof OutOfMemoryError);
+		}
+		assertThat(fatal.failedBatchCount(), is(1L));
+		assertThat(fatal.droppedCount(), is(4L));
+
+		// ********* close と競合した accept の値も、処理されるか捨てた数に入る
+		for (int round = 0; round < 20; round++) {
+			LeftTee<Integer> racing = LeftTee.of(batch -> {
+			}, 4, 2, LeftTee.Overflow.BLOCK);
+			AtomicInteger accepted = new AtomicInteger();
+			Thread producer = new Thread(() -> {
+				try {
+					for (int i = 0;; i++) {
+						racing.accept(i);
+						accepted.incrementAndGet();
+					}
+				} catch (IllegalStateException e) {
+					// close された
+				}
+			});
+			producer.start();
+			Thread.sleep(1);
+			racing.close();
+			producer.join();
+			racing.flush();
+			assertThat(racing.consumedCount() + racing.droppedCount(), is((long) accepted.get()));
+		}
+	}
+
+	@Test
+	public void test_foldLeftResumable() throws Exception {
+		Path file = Files.createTempFile("fold", ".ckpt");
+		Files.delete(file);
+		FoldCheckpoint<Long> checkpoint = FoldCheckpoint.of(file, Codec.longValue()).everyElements(10);
+		List<Integer> folded = new ArrayList<Integer>();
+
+		// ********* 55 番目で落ちる
+		try {
+			foldLeftResumable(IntStream.range(0, 100).boxed(), 0L, (sum, i) -> {
+				if (i == 55) {
+					throw new IllegalStateException("crash");
+				}
+				folded.add(i);
+				return sum + i;
+			}, checkpoint);
+		} catch (IllegalStateException e) {
+			assertThat(e.getMessage(), is("crash"));
+		}
+		assertThat(checkpoint.load().getOrNoSuchElementException(), is(Param.t2(50L, 49L * 50 / 2)));
+
+		// ********* 50 番目から再開し、終わったらチェックポイントを消す
+		folded.clear();
+		long sum = foldLeftResumable(IntStream.range(0, 100).boxed(), 0L, (acc, i) -> {
+			folded.add(i);
+			return acc + i;
+		}, checkpoint);
+		assertThat(sum, is(99L * 100 / 2));
+		assertThat(folded.get(0), is(50));
+		assertThat(folded.size(), is(50));
+		assertTrue(!Files.exists(file));
+
+		// ********* 時間で保存
+		FoldCheckpoint<Long> timed = FoldCheckpoint.of(file, Codec.longValue()).everyElements(0)
+				.every(Duration.ofNanos(1));
+		try {
+			foldLeftResumable(IntStream.range(0, 5000).boxed(), 0L, (acc, i) -> {
+				if (i == 4000) {
+					throw new IllegalStateException("crash");
+				}
+				return acc + i;
+			}, timed);
+		} catch (IllegalStateException e) {
+			assertThat(timed.load().getOrNoSuchElementException()._1, is(3072L));
+		}
+		timed.delete();
+	}
+
+	@Test
+	public void test_batched() {
+		List<Integer> source = IntStream.range(0, 100000).boxed().collect(Collectors.toList());
+
+		// ********* 分割の大きさは最初の大きさずつ増え、上限で止まる
+		BatchingSpliterator<Integer> spliterator = new BatchingSpliterator<Integer>(source.iterator(), 16, 40);
+		assertThat(spliterator.trySplit().getExactSizeIfKnown(), is(16L));
+		assertThat(spliterator.trySplit().getExactSizeIfKnown(), is(32L));
+		assertThat(spliterator.trySplit().getExactSizeIfKnown(), is(40L));
+		assertThat(spliterator.trySplit().getExactSizeIfKnown(), is(40L));
+
+		// ********* 既定の大きさでは、20000 要素のどの分割も全体の 5% 以下
+		BatchingSpliterator<Integer> defaults = new BatchingSpliterator<Integer>(source.subList(0, 20000).iterator(),
+				BatchingSpliterator.INITIAL_BATCH, BatchingSpliterator.MAX_BATCH);
+		List<Long> sizes = new ArrayList<Long>();
+		for (Spliterator<Integer> part; (part = defaults.trySplit()) != null;) {
+			sizes.add(part.getExactSizeIfKnown());
+		}
+		assertThat(sizes.stream().mapToLong(Long::longValue).sum(), is(20000L));
+		assertTrue(sizes.toString(), sizes.size() >= 40);
+		assertTrue(sizes.toString(), Collections.max(sizes) <= 20000 / 20);
+
+		// *********
+		assertTrue(batched(source.iterator()).isParallel());
+		assertThat(batched(source.iterator()).map(i -> i * 2).collect(Collectors.toList()),
+				is(source.stream().map(i -> i * 2).collect(Collectors.toList())));
+		assertThat(batched(Arrays.asList(1).iterator(), 1, 1).collect(Collectors.toList()), is(Arrays.asList(1)));
+
+		// *********
+		long sum = foldLeftParallel(source.iterator(), 0L, (acc, i) -> acc + i, Long::sum);
+		assertThat(sum, is(99999L * 100000 / 2));
+		String joined = collectParallel(source.subList(0, 2000).iterator(),
+				Collectors.mapping(String::valueOf, Collectors.joining(",")));
+		assertThat(joined, is(source.subList(0, 2000).stream().map(String::valueOf).collect(Collectors.joining(","))));
+	}
+
+}
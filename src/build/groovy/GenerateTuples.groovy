@@ -0,0 +1,157 @@
+/*
+ * Generates jp.que.ti.stream.Param (Tuple .. Tuple22) and
+ * jp.que.ti.stream.OptionalUtils (forYield for 2 .. 22 inputs).
+ *
+ * Executed by gmavenplus-plugin in the generate-sources phase; the output
+ * directory is added as a source root by build-helper-maven-plugin.
+ *
+ * Shared by the modules. Properties of the execution:
+ *   tuplePackage   the package of the classes (default jp.que.ti.stream)
+ *   finalTuples    'true' to make Param and the tuples final (ext-java8-core)
+ *   optionalUtils  'false' not to generate OptionalUtils (ext-java8-core)
+ */
+def property = { String name, String defaultValue ->
+	binding.hasVariable(name) ? String.valueOf(binding.getVariable(name)) : defaultValue
+}
+final int MAX_ARITY = 22
+final String PKG = property('tuplePackage', 'jp.que.ti.stream')
+final String FINAL = property('finalTuples', 'false').toBoolean() ? 'final ' : ''
+final boolean OPTIONAL_UTILS = property('optionalUtils', 'true').toBoolean()
+
+final File outDir = new File(project.build.directory, 'generated-sources/tuples/' + PKG.replace('.', '/'))
+outDir.mkdirs()
+
+// ------------------------------------------------------------ helpers
+def letter = { int i -> String.valueOf((char) (64 + i)) }
+def lower = { int i -> letter(i).toLowerCase() }
+def tupleName = { int n -> n == 2 ? 'Tuple' : 'Tuple' + n }
+def typeParams = { int n -> (1..n).collect { letter(it) }.join(', ') }
+
+// ------------------------------------------------------------ Param
+def param = new StringBuilder()
+param << """package ${PKG};
+
+public ${FINAL}class Param {
+	private Param() {
+	}
+"""
+
+(2..MAX_ARITY).each { int n ->
+	final String name = tupleName(n)
+	final String tps = typeParams(n)
+
+	param << '\n'
+	if (n == 2) {
+		param << """	/**
+	 * A pair - a tuple of the types <code>A</code> and <code>B</code>.
+	 */
+"""
+	} else {
+		param << """	/**
+	 * A tuple of ${(1..n).collect { letter(it) }.join(',')}
+	 */
+"""
+	}
+	param << "\tpublic static ${FINAL}class ${name}<${tps}> {\n\n"
+	(1..n).each { param << "\t\tfinal public ${letter(it)} _${it};\n" }
+	param << "\n"
+	param << "\t\tpublic ${name}(${(1..n).collect { "${letter(it)} _${it}" }.join(', ')}) {\n"
+	(1..n).each { param << "\t\t\tthis._${it} = _${it};\n" }
+	param << "\t\t}\n\n"
+
+	// toString
+	def parts = (2..n).collect { int i ->
+		i == 2 ? "\", _2: \" + _2" : "\", _${i}:\" + _${i}"
+	}
+	param << "\t\t@Override\n"
+	param << "\t\tpublic String toString() {\n"
+	param << "\t\t\treturn \"Tuple${n}(_1: \" + _1 + ${parts.join(' + ')} + \")\";\n"
+	param << "\t\t}\n\n"
+
+	// hashCode
+	param << "\t\t@Override\n"
+	param << "\t\tpublic int hashCode() {\n"
+	param << "\t\t\tfinal int prime = 31;\n"
+	param << "\t\t\tint result = 1;\n"
+	(1..n).each { param << "\t\t\tresult = prime * result + ((_${it} == null) ? 0 : _${it}.hashCode());\n" }
+	param << "\t\t\treturn result;\n"
+	param << "\t\t}\n\n"
+
+	// equals
+	param << "\t\t@Override\n"
+	param << "\t\tpublic boolean equals(Object obj) {\n"
+	param << "\t\t\tif (this == obj)\n\t\t\t\treturn true;\n"
+	param << "\t\t\tif (obj == null)\n\t\t\t\treturn false;\n"
+	param << "\t\t\tif (!(obj instanceof ${name}))\n\t\t\t\treturn false;\n"
+	param << "\t\t\t${name} other = (${name}) obj;\n"
+	(1..n).each {
+		param << "\t\t\tif (_${it} == null) {\n"
+		param << "\t\t\t\tif (other._${it} != null)\n\t\t\t\t\treturn false;\n"
+		param << "\t\t\t} else if (!_${it}.equals(other._${it}))\n\t\t\t\treturn false;\n"
+	}
+	param << "\t\t\treturn true;\n"
+	param << "\t\t}\n"
+	param << "\t}\n\n"
+
+	// factory
+	param << "\t/**\n"
+	param << "\t * Constructs a tuple of ${(1..n).collect { letter(it) }.join(',')}\n"
+	param << "\t *\n"
+	(1..n).each {
+		param << "\t * @param ${lower(it)}\n"
+		param << "\t *            The ${lower(it)} value\n"
+	}
+	param << "\t * @return The tuple\n"
+	param << "\t */\n"
+	param << "\tpublic static <${tps}> ${name}<${tps}> t${n}(${(1..n).collect { "${letter(it)} ${lower(it)}" }.join(', ')}) {\n"
+	param << "\t\treturn new ${name}<${tps}>(${(1..n).collect { lower(it) }.join(', ')});\n"
+	param << "\t}\n"
+}
+param << "\n}\n"
+
+new File(outDir, 'Param.java').write(param.toString(), 'UTF-8')
+
+// ------------------------------------------------------------ OptionalUtils
+if (!OPTIONAL_UTILS) {
+	return
+}
+
+def opt = new StringBuilder()
+opt << """package ${PKG};
+
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+"""
+(3..MAX_ARITY).each { opt << "import ${PKG}.Param.Tuple${it};\n" }
+opt << """
+public class OptionalUtils {
+	private OptionalUtils() {
+	}
+
+	public static <A, B, RETURN> Optional<RETURN> forYield(//
+			Optional<A> optA, Optional<B> optB//
+			, BiFunction<A, B, RETURN> operator) {
+
+		return optA.flatMap(a -> //
+		optB.map(b -> operator.apply(a, b)));
+	}
+"""
+
+(3..MAX_ARITY).each { int n ->
+	final String tps = (1..n).collect { "T${it}" }.join(', ')
+	opt << "\n"
+	opt << "\tpublic static <${tps}, RETURN> Optional<RETURN> forYield(//\n"
+	opt << "\t\t\t${(1..n).collect { "Optional<T${it}> opt${letter(it)}" }.join(', ')} //\n"
+	opt << "\t\t\t, Function<Tuple${n}<${tps}>, RETURN> operator) {\n\n"
+	(1..n).each { int i ->
+		final String call = i == n ? 'map' : 'flatMap'
+		opt << "\t\t${i == 1 ? 'return ' : ''}opt${letter(i)}.${call}(_${i} -> //\n"
+	}
+	opt << "\t\toperator.apply(Param.t${n}(${(1..n).collect { "_${it}" }.join(', ')}))${')' * n};\n"
+	opt << "\t}\n"
+}
+opt << "\n}\n"
+
+new File(outDir, 'OptionalUtils.java').write(opt.toString(), 'UTF-8')